@@ -18,7 +18,9 @@ import top.easelink.lcg.R
 import top.easelink.lcg.config.AppConfig
 import top.easelink.lcg.mta.EVENT_APP_LAUNCH
 import top.easelink.lcg.mta.sendEvent
+import top.easelink.lcg.parser.ParseLog
 import top.easelink.lcg.service.work.SignInWorker
+import top.easelink.lcg.ui.main.source.local.ReadStateStore
 
 
 class LCGApp : Application() {
@@ -31,10 +33,14 @@ class LCGApp : Application() {
         } else {
             Timber.plant(ErrorReportTree())
         }
+        ParseLog.sink = { Timber.w(it) }
         initBulgy()
         initMTA()
         AppGuardStarter.init(this)
         trySignIn()
+        GlobalScope.launch(BackGroundPool) {
+            ReadStateStore.init()
+        }
     }
 
     private fun trySignIn() = GlobalScope.launch(BackGroundPool) {
@@ -20,6 +20,14 @@ object AppConfig {
     private const val CONFIG_DEFAULT_SEARCH_ENGINE = "default_search_engine"
     private const val CONFIG_AUTO_SIGN_IN = "auto_sign_in"
     private const val CONFIG_SYNC_FAVORITES = "sync_favorites"
+    private const val CONFIG_PAGE_CACHE_STALE_SECONDS = "page_cache_stale_seconds"
+    private const val CONFIG_TRANSPORT_MODE = "transport_mode"
+    private const val CONFIG_REPLAY_LATENCY_MILLIS = "replay_latency_millis"
+    private const val CONFIG_REPLAY_BYTES_PER_SECOND = "replay_bytes_per_second"
+
+    const val TRANSPORT_LIVE = 0
+    const val TRANSPORT_RECORD = 1
+    const val TRANSPORT_REPLAY = 2
 
 
     private const val CONFIG_SEARCH_ENGINE_BAIDU = 1
@@ -71,6 +79,25 @@ object AppConfig {
         get() = get(CONFIG_SYNC_FAVORITES, true)
         set(value) = put(CONFIG_SYNC_FAVORITES, value)
 
+    // cached forum/thread page younger than this is shown at once and refreshed in background, 0 -> disabled
+    var pageCacheStaleSeconds: Int
+        get() = get(CONFIG_PAGE_CACHE_STALE_SECONDS, 5 * 60)
+        set(value) = put(CONFIG_PAGE_CACHE_STALE_SECONDS, value)
+
+    // debug builds only, record responses or replay recorded ones, takes effect on next launch
+    var transportMode: Int
+        get() = get(CONFIG_TRANSPORT_MODE, TRANSPORT_LIVE)
+        set(value) = put(CONFIG_TRANSPORT_MODE, value)
+
+    var replayLatencyMillis: Int
+        get() = get(CONFIG_REPLAY_LATENCY_MILLIS, 0)
+        set(value) = put(CONFIG_REPLAY_LATENCY_MILLIS, value)
+
+    // 0 -> unlimited
+    var replayBytesPerSecond: Int
+        get() = get(CONFIG_REPLAY_BYTES_PER_SECOND, 0)
+        set(value) = put(CONFIG_REPLAY_BYTES_PER_SECOND, value)
+
 
     private fun getConfigSp(): SharedPreferences {
         return LCGApp.instance.getSharedPreferences(CONFIG_SP, Context.MODE_PRIVATE)
@@ -1,6 +1,5 @@
 package top.easelink.lcg.network
 
-import org.jsoup.Connection
 import org.jsoup.nodes.Document
 
 interface ApiRequest {
@@ -9,5 +8,5 @@ interface ApiRequest {
 
     fun sendGetRequestWithUrl(url: String): Document?
 
-    fun sendPostRequestWithUrl(url: String, form: MutableMap<String, String>?): Connection.Response
+    fun sendPostRequestWithUrl(url: String, form: MutableMap<String, String>?): Document?
 }
\ No newline at end of file
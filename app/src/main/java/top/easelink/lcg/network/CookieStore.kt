@@ -0,0 +1,199 @@
+package top.easelink.lcg.network
+
+import android.webkit.CookieManager
+import kotlinx.coroutines.GlobalScope
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.launch
+import okhttp3.Cookie
+import okhttp3.CookieJar
+import okhttp3.HttpUrl
+import timber.log.Timber
+import top.easelink.framework.threadpool.BackGroundPool
+import top.easelink.lcg.utils.SharedPreferencesHelper
+import top.easelink.lcg.utils.WebsiteConstant.SERVER_BASE_URL
+import java.util.*
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * In-memory cookie store shared by HTTP client and WebView.
+ *
+ * Cookies are read from SharedPreferences once, requests are served from memory.
+ * Changes are written back in batches ([FLUSH_DELAY]) and only changed entries are written,
+ * cookies from HTTP responses are pushed to WebView's [CookieManager] in the same batch.
+ */
+object CookieStore : CookieJar {
+
+    private const val FLUSH_DELAY = 1000L
+
+    private val cookies: ConcurrentHashMap<String, String> by lazy {
+        ConcurrentHashMap<String, String>().apply {
+            SharedPreferencesHelper.getCookieSp().all.forEach { (k, v) ->
+                if (v != null) {
+                    put(k, v.toString())
+                }
+            }
+        }
+    }
+
+    // bumped on every change, cached views below are only valid for the version they're built from
+    private val version = AtomicInteger(0)
+
+    @Volatile
+    private var snapshot: Pair<Int, Map<String, String>>? = null
+
+    @Volatile
+    private var requestCookies: Triple<Int, String, List<Cookie>>? = null
+
+    @Volatile
+    private var lastWebViewCookie: String? = null
+
+    private val spDirtyKeys: MutableSet<String> =
+        Collections.newSetFromMap(ConcurrentHashMap<String, Boolean>())
+    private val webViewDirtyKeys: MutableSet<String> =
+        Collections.newSetFromMap(ConcurrentHashMap<String, Boolean>())
+    private val flushScheduled = AtomicBoolean(false)
+
+    /**
+     * @return read-only view of all cookies, it's rebuilt only after cookies change
+     */
+    fun getAll(): Map<String, String> {
+        val v = version.get()
+        snapshot?.let {
+            if (it.first == v) return it.second
+        }
+        return Collections.unmodifiableMap(HashMap(cookies)).also {
+            snapshot = v to it
+        }
+    }
+
+    /**
+     * @param syncToWebView whether changed cookies should be pushed to WebView as well
+     */
+    fun put(newCookies: Map<String, String>, syncToWebView: Boolean) {
+        var changed = false
+        newCookies.forEach { (k, v) ->
+            if (cookies.put(k, v) != v) {
+                changed = true
+                spDirtyKeys.add(k)
+                if (syncToWebView) {
+                    webViewDirtyKeys.add(k)
+                }
+            }
+        }
+        if (changed) {
+            version.incrementAndGet()
+            scheduleFlush()
+        }
+    }
+
+    /**
+     * Sync cookie string of WebView, ex: "a=1; b=2", nothing happens if it's not changed
+     */
+    fun syncFromWebView(cookieString: String?) {
+        if (cookieString.isNullOrEmpty() || cookieString == lastWebViewCookie) {
+            return
+        }
+        lastWebViewCookie = cookieString
+        put(parseCookieString(cookieString), syncToWebView = false)
+    }
+
+    fun clear() {
+        cookies.clear()
+        spDirtyKeys.clear()
+        webViewDirtyKeys.clear()
+        lastWebViewCookie = null
+        version.incrementAndGet()
+        SharedPreferencesHelper.getCookieSp().edit().clear().apply()
+        CookieManager.getInstance().removeAllCookies(null)
+    }
+
+    override fun loadForRequest(url: HttpUrl): List<Cookie> {
+        val v = version.get()
+        requestCookies?.let {
+            if (it.first == v && it.second == url.host) return it.third
+        }
+        return getAll()
+            .mapNotNull { (name, value) ->
+                try {
+                    Cookie.Builder()
+                        .name(name)
+                        .value(value)
+                        .hostOnlyDomain(url.host)
+                        .build()
+                } catch (e: IllegalArgumentException) {
+                    // illegal cookie, skip it
+                    null
+                }
+            }
+            .also {
+                requestCookies = Triple(v, url.host, it)
+            }
+    }
+
+    override fun saveFromResponse(url: HttpUrl, cookies: List<Cookie>) {
+        if (cookies.isNotEmpty()) {
+            put(cookies.associate { it.name to it.value }, syncToWebView = true)
+        }
+    }
+
+    private fun scheduleFlush() {
+        if (flushScheduled.compareAndSet(false, true)) {
+            GlobalScope.launch(BackGroundPool) {
+                delay(FLUSH_DELAY)
+                // changes after this point schedule another flush
+                flushScheduled.set(false)
+                flush()
+            }
+        }
+    }
+
+    private fun flush() {
+        try {
+            SharedPreferencesHelper.getCookieSp().edit().apply {
+                drain(spDirtyKeys) { key ->
+                    cookies[key]?.let { putString(key, it) } ?: remove(key)
+                }
+            }.apply()
+            if (webViewDirtyKeys.isNotEmpty()) {
+                val cookieManager = CookieManager.getInstance()
+                drain(webViewDirtyKeys) { key ->
+                    cookies[key]?.let {
+                        cookieManager.setCookie(SERVER_BASE_URL, "$key=$it")
+                    }
+                }
+                cookieManager.flush()
+            }
+        } catch (e: Exception) {
+            Timber.e(e)
+        }
+    }
+
+    private inline fun drain(keys: MutableSet<String>, action: (String) -> Unit) {
+        val iterator = keys.iterator()
+        while (iterator.hasNext()) {
+            val key = iterator.next()
+            iterator.remove()
+            action(key)
+        }
+    }
+
+    private fun parseCookieString(cookieString: String): Map<String, String> {
+        val map = HashMap<String, String>()
+        var start = 0
+        while (start < cookieString.length) {
+            var end = cookieString.indexOf(';', start)
+            if (end < 0) end = cookieString.length
+            val eq = cookieString.indexOf('=', start)
+            if (eq in (start + 1) until end) {
+                val name = cookieString.substring(start, eq).trim()
+                if (name.isNotEmpty()) {
+                    map[name] = cookieString.substring(eq + 1, end).trim()
+                }
+            }
+            start = end + 1
+        }
+        return map
+    }
+}
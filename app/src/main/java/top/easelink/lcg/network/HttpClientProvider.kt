@@ -0,0 +1,83 @@
+package top.easelink.lcg.network
+
+import okhttp3.ConnectionPool
+import okhttp3.Interceptor
+import okhttp3.OkHttpClient
+import top.easelink.lcg.BuildConfig
+import top.easelink.lcg.appinit.LCGApp
+import top.easelink.lcg.config.AppConfig
+import top.easelink.lcg.config.AppConfig.TRANSPORT_RECORD
+import top.easelink.lcg.config.AppConfig.TRANSPORT_REPLAY
+import top.easelink.lcg.replay.Corpus
+import top.easelink.lcg.replay.RecordingInterceptor
+import top.easelink.lcg.replay.ReplayInterceptor
+import top.easelink.lcg.replay.Shaping
+import java.io.File
+import java.util.concurrent.TimeUnit
+
+/**
+ * Owns the single OkHttpClient of the app.
+ * Every client used by [ApiRequest] implementations should be derived from [sharedClient]
+ * by [OkHttpClient.newBuilder], so that they share the same connection pool and dispatcher
+ * and keep-alive connections / TLS sessions can be reused between requests.
+ */
+object HttpClientProvider {
+
+    private const val TIME_OUT = 15L
+    private const val MAX_IDLE_CONNECTIONS = 5
+    private const val KEEP_ALIVE_MINUTES = 5L
+
+    // same as Jsoup's default user agent, some pages reject okhttp's one
+    private const val USER_AGENT =
+        "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/53.0.2785.143 Safari/537.36"
+
+    private val userAgentInterceptor = Interceptor { chain ->
+        chain.request().let {
+            if (it.header("User-Agent") == null) {
+                chain.proceed(it.newBuilder().header("User-Agent", USER_AGENT).build())
+            } else {
+                chain.proceed(it)
+            }
+        }
+    }
+
+    val sharedClient: OkHttpClient by lazy {
+        OkHttpClient
+            .Builder()
+            .connectionPool(ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+            .callTimeout(TIME_OUT, TimeUnit.SECONDS)
+            .connectTimeout(TIME_OUT, TimeUnit.SECONDS)
+            .readTimeout(TIME_OUT, TimeUnit.SECONDS)
+            .writeTimeout(TIME_OUT, TimeUnit.SECONDS)
+            .addInterceptor(userAgentInterceptor)
+            .apply {
+                transportInterceptor()?.let { addInterceptor(it) }
+            }
+            .eventListenerFactory(TimingEventListener.FACTORY)
+            .retryOnConnectionFailure(true)
+            .build()
+    }
+
+    /**
+     * Debug builds can record every response into a corpus, or replay them from it without
+     * network, see [AppConfig.transportMode].
+     * The corpus can be pulled by adb and served on a desktop, see :benchmark.
+     */
+    private fun transportInterceptor(): Interceptor? {
+        if (!BuildConfig.DEBUG) {
+            return null
+        }
+        val corpus = Corpus(File(LCGApp.context.getExternalFilesDir(null), "corpus"))
+        return when (AppConfig.transportMode) {
+            TRANSPORT_RECORD -> RecordingInterceptor(corpus)
+            TRANSPORT_REPLAY -> ReplayInterceptor(
+                corpus,
+                Shaping(
+                    AppConfig.replayLatencyMillis.toLong(),
+                    AppConfig.replayBytesPerSecond.toLong()
+                )
+            )
+            else -> null
+        }
+    }
+}
@@ -1,24 +1,29 @@
 package top.easelink.lcg.network
 
 import android.annotation.SuppressLint
-import kotlinx.coroutines.GlobalScope
-import kotlinx.coroutines.launch
-import org.jsoup.Connection
+import okhttp3.FormBody
+import okhttp3.HttpUrl.Companion.toHttpUrlOrNull
+import okhttp3.OkHttpClient
+import okhttp3.Request
+import okhttp3.Response
+import org.jsoup.HttpStatusException
 import org.jsoup.Jsoup
 import org.jsoup.nodes.Document
 import timber.log.Timber
-import top.easelink.framework.threadpool.BackGroundPool
+import top.easelink.framework.utils.NetworkUtils
 import top.easelink.lcg.BuildConfig
+import top.easelink.lcg.appinit.LCGApp
+import top.easelink.lcg.config.AppConfig
 import top.easelink.lcg.config.AppConfig.followRedirectsEnable
 import top.easelink.lcg.ui.main.source.checkMessages
-import top.easelink.lcg.ui.main.source.extractFormHash
 import top.easelink.lcg.utils.WebsiteConstant.SERVER_BASE_URL
-import top.easelink.lcg.utils.getCookies
-import top.easelink.lcg.utils.setCookies
+import top.easelink.lcg.utils.getCookieIdentity
 import java.io.IOException
 import java.net.SocketTimeoutException
+import java.nio.charset.Charset
 import java.security.SecureRandom
 import java.security.cert.X509Certificate
+import java.util.concurrent.TimeUnit
 import javax.net.ssl.*
 
 object JsoupClient : ApiRequest {
@@ -29,138 +34,239 @@ object JsoupClient : ApiRequest {
             field = value
         }
 
-    init {
-        if (BuildConfig.DEBUG) {
-            trustAll()
-        }
-    }
-
     private var lastTime = 0L
     private val CHECK_INTERVAL = if (BuildConfig.DEBUG) 60 * 1000 else 30 * 1000
-    private const val TIME_OUT_LIMIT = 15 * 1000
+    private const val TIME_OUT_LIMIT = 15 * 1000L
     private const val BASE_URL = SERVER_BASE_URL
+    private val POST_CHARSET = Charset.forName("gbk")
 
-    @Throws(SocketTimeoutException::class, IOException::class)
-    override fun sendGetRequestWithQuery(query: String): Document {
-        return Jsoup
-            .connect("$BASE_URL$query")
-            .timeout(TIME_OUT_LIMIT)
-            .ignoreHttpErrors(true)
-            .cookies(getCookies())
-            .method(Connection.Method.GET)
-            .followRedirects(followRedirectsEnable())
-            .execute()
-            .let {
-                setCookies(it.cookies())
-                it.parse().also { doc ->
-                    checkResponse(doc)
+    // all clients derive from the shared one, so connections are pooled and kept alive
+    private val client: OkHttpClient by lazy {
+        HttpClientProvider
+            .sharedClient
+            .newBuilder()
+            .callTimeout(TIME_OUT_LIMIT, TimeUnit.MILLISECONDS)
+            .cookieJar(CookieStore)
+            .cache(PageCache.cache)
+            .addNetworkInterceptor(PageCache.interceptor)
+            .apply {
+                if (BuildConfig.DEBUG) {
+                    trustAll(this)
                 }
             }
+            .build()
     }
 
-    fun sendAjaxRequest(query: String): String {
-        return Jsoup
-            .connect("$BASE_URL$query")
-            .timeout(TIME_OUT_LIMIT)
-            .ignoreHttpErrors(true)
-            .cookies(getCookies())
-            .method(Connection.Method.GET)
+    private val noRedirectClient: OkHttpClient by lazy {
+        client
+            .newBuilder()
             .followRedirects(false)
-            .execute()
-            .let {
-                setCookies(it.cookies())
-                it.body()
-            }
+            .followSslRedirects(false)
+            .build()
     }
 
+    // identical GET requests in flight share one network call
+    private val documentFlights = SingleFlight<String, Document>()
+    private val ajaxFlights = SingleFlight<String, Document?>()
+    private val pageFlights = SingleFlight<String, RawPage>()
+
+    @Throws(SocketTimeoutException::class, IOException::class)
+    override fun sendGetRequestWithQuery(query: String): Document {
+        return sendGetRequestWithUrl("$BASE_URL$query")
+    }
+
+    /**
+     * @return payload of the inajax response, null if it's `false`, see [parseAjax]
+     */
+    fun sendAjaxRequest(query: String): Document? {
+        val url = "$BASE_URL$query"
+        return ajaxFlights.execute(flightKey(url), { it?.clone() }) {
+            RequestLifecycle.execute(
+                noRedirectClient.newCall(Request.Builder().url(url).get().build())
+            ) {
+                it.parseAjax()
+            }
+        }
+    }
 
+    @Throws(SocketTimeoutException::class, IOException::class)
     override fun sendGetRequestWithUrl(url: String): Document {
-        return Jsoup
-            .connect(url)
-            .timeout(TIME_OUT_LIMIT)
-            .ignoreHttpErrors(true)
-            .cookies(getCookies())
-            .method(Connection.Method.GET)
-            .followRedirects(followRedirectsEnable())
-            .execute()
-            .let {
-                setCookies(it.cookies())
-                it.parse().also { doc ->
-                    checkResponse(doc)
+        return getDocument(url, flightKey(url)) { response, sniffer ->
+            response.parseDocument(sniffer = sniffer)
+        }
+    }
+
+    /**
+     * Download a page without parsing it, see [PagePipeline]
+     */
+    @Throws(SocketTimeoutException::class, IOException::class)
+    fun downloadPage(query: String): RawPage {
+        val url = "$BASE_URL$query"
+        return pageFlights.execute(flightKey(url)) {
+            request(url) { response, sniffer ->
+                response.readPage(sniffer)
+            }
+        }
+    }
+
+    /**
+     * Download a file like an attached image, with user's cookies
+     */
+    @Throws(SocketTimeoutException::class, IOException::class)
+    fun downloadBytes(url: String): ByteArray {
+        return RequestLifecycle.execute(client.newCall(Request.Builder().url(url).get().build())) {
+            if (!it.isSuccessful) {
+                throw IOException("${it.code} for $url")
+            }
+            it.body?.bytes() ?: ByteArray(0)
+        }
+    }
+
+    /**
+     * Get a forum list page which only holds the parts used by list parsers, see [parseForumList].
+     * The rest of page is not downloaded on metered network, or if page cache is off.
+     */
+    @Throws(SocketTimeoutException::class, IOException::class)
+    fun sendForumListRequest(query: String): Document {
+        val url = "$BASE_URL$query"
+        return getDocument(url, "${flightKey(url)}|list") { response, sniffer ->
+            response.parseForumList(
+                earlyExit = AppConfig.pageCacheStaleSeconds <= 0
+                        || NetworkUtils.isNetworkMetered(LCGApp.context),
+                sniffer = sniffer
+            )
+        }
+    }
+
+    private fun getDocument(
+        url: String,
+        key: String,
+        parse: (Response, SessionSniffer?) -> Document
+    ): Document {
+        // Document is mutable, every caller gets its own copy, joined to a running request or not
+        return documentFlights.execute(key, { it.clone() }) {
+            request(url, parse)
+        }
+    }
+
+    private fun <T> request(url: String, read: (Response, SessionSniffer?) -> T): T {
+        val c = if (followRedirectsEnable()) client else noRedirectClient
+        // forum and thread pages are shown from disk first, then refreshed in background
+        PageCache.readStale(c, url) { read(it, null) }?.let {
+            PageCache.revalidate(c, url) { response ->
+                newSniffer()?.let { sniffer ->
+                    response.body?.let { body ->
+                        sniffer.scan(body.byteStream(), body.contentType()?.charset())
+                    }
+                    onSniffed(sniffer)
                 }
             }
+            return it
+        }
+        return RequestLifecycle.execute(c.newCall(Request.Builder().url(url).get().build())) {
+            val sniffer = newSniffer()
+            // http errors are ignored, the page is parsed anyway
+            read(it, sniffer).also {
+                sniffer?.let { s -> onSniffed(s) }
+            }
+        }
     }
 
+    @Throws(HttpStatusException::class, IOException::class)
     override fun sendPostRequestWithUrl(
         url: String,
         form: MutableMap<String, String>?
-    ): Connection.Response {
-        return Jsoup
-            .connect(url)
-            .cookies(getCookies())
+    ): Document {
+        val body = FormBody
+            .Builder(POST_CHARSET)
             .apply {
-                if (form != null) {
-                    data(form)
+                form?.forEach { (k, v) ->
+                    add(k, v)
                 }
             }
-            .postDataCharset("gbk")
-            .method(Connection.Method.POST)
-            .execute()
-            .also {
-                setCookies(it.cookies())
+            .build()
+        return RequestLifecycle.execute(client.newCall(Request.Builder().url(url).post(body).build())) {
+            if (!it.isSuccessful) {
+                throw HttpStatusException("HTTP error fetching URL", it.code, url)
             }
+            it.parseDocument()
+        }
+    }
+
+    /**
+     * Requests are identical if they have the same canonical url and are sent by the same user
+     */
+    private fun flightKey(url: String): String {
+        val canonicalUrl = url.toHttpUrlOrNull()?.toString() ?: url
+        return "$canonicalUrl|${getCookieIdentity()}"
     }
 
-    private fun checkResponse(doc: Document) = GlobalScope.launch(BackGroundPool) {
+    /**
+     * formhash and messages are picked while the response is parsed, null if neither is due
+     */
+    private fun newSniffer(): SessionSniffer? {
         // try update from hash which is used to send post request, ex: replay
+        val wantFormHash = formHash.isNullOrEmpty()
+        val wantMessages = System.currentTimeMillis() - lastTime > CHECK_INTERVAL
+        if (wantMessages) {
+            lastTime = System.currentTimeMillis()
+        }
+        return if (wantFormHash || wantMessages) {
+            SessionSniffer(wantFormHash, wantMessages)
+        } else {
+            null
+        }
+    }
+
+    private fun onSniffed(sniffer: SessionSniffer) {
         if (formHash.isNullOrEmpty()) {
-            formHash = extractFormHash(doc)
+            sniffer.formHash?.let { formHash = it }
         }
-        if (System.currentTimeMillis() - lastTime > CHECK_INTERVAL) {
-            lastTime = System.currentTimeMillis()
+        sniffer.promptMenu?.let {
             try {
                 // TODO check login state is not stable
 //                    checkLoginState(doc)
-                checkMessages(doc)
+                checkMessages(Jsoup.parseBodyFragment(it))
             } catch (e: Exception) {
                 Timber.e(e)
             }
         }
     }
 
-    private fun trustAll() {
+    private fun trustAll(builder: OkHttpClient.Builder) {
         try { // Create a trust manager that does not validate certificate chains
-            val trustAllCerts =
-                arrayOf<TrustManager>(object : X509TrustManager {
-                    override fun getAcceptedIssuers(): Array<X509Certificate>? {
-                        return null
-                    }
+            val trustManager = object : X509TrustManager {
+                override fun getAcceptedIssuers(): Array<X509Certificate> {
+                    return arrayOf()
+                }
 
-                    @SuppressLint("TrustAllX509TrustManager")
-                    override fun checkClientTrusted(
-                        certs: Array<X509Certificate>,
-                        authType: String
-                    ) {
-                    }
+                @SuppressLint("TrustAllX509TrustManager")
+                override fun checkClientTrusted(
+                    certs: Array<X509Certificate>,
+                    authType: String
+                ) {
+                }
 
-                    @SuppressLint("TrustAllX509TrustManager")
-                    override fun checkServerTrusted(
-                        certs: Array<X509Certificate>,
-                        authType: String
-                    ) {
-                    }
+                @SuppressLint("TrustAllX509TrustManager")
+                override fun checkServerTrusted(
+                    certs: Array<X509Certificate>,
+                    authType: String
+                ) {
                 }
-                )
+            }
             // Install the all-trusting trust manager
             val sc = SSLContext.getInstance("SSL")
-            sc.init(null, trustAllCerts, SecureRandom())
-            HttpsURLConnection.setDefaultSSLSocketFactory(sc.socketFactory)
+            sc.init(null, arrayOf<TrustManager>(trustManager), SecureRandom())
             // Create all-trusting host name verifier
             val allHostsValid = HostnameVerifier { _, _ -> true }
-            // Install the all-trusting host verifier
+            builder
+                .sslSocketFactory(sc.socketFactory, trustManager)
+                .hostnameVerifier(allHostsValid)
+            // Keep HttpURLConnection in line, it's still used by Jsoup.connect()
+            HttpsURLConnection.setDefaultSSLSocketFactory(sc.socketFactory)
             HttpsURLConnection.setDefaultHostnameVerifier(allHostsValid)
         } catch (e: Exception) {
             Timber.e(e)
         }
     }
-}
\ No newline at end of file
+}
@@ -7,8 +7,6 @@ import com.franmontiel.persistentcookiejar.persistence.SharedPrefsCookiePersisto
 import okhttp3.Cache
 import okhttp3.OkHttpClient
 import okhttp3.Request
-import org.jsoup.Connection
-import org.jsoup.Jsoup
 import org.jsoup.nodes.Document
 import top.easelink.lcg.appinit.LCGApp
 import top.easelink.lcg.config.AppConfig.followRedirectsEnable
@@ -25,16 +23,13 @@ object OkApiClient : ApiRequest {
         val cacheDirectory = File(LCGApp.context.cacheDir, "okhttp_cache")
         val cookieJar: ClearableCookieJar =
             PersistentCookieJar(SetCookieCache(), SharedPrefsCookiePersistor(LCGApp.context))
-        mClient = OkHttpClient
-            .Builder()
+        mClient = HttpClientProvider
+            .sharedClient
+            .newBuilder()
             .callTimeout(TIME_OUT, TimeUnit.SECONDS)
-            .connectTimeout(TIME_OUT, TimeUnit.SECONDS)
-            .readTimeout(TIME_OUT, TimeUnit.SECONDS)
-            .writeTimeout(TIME_OUT, TimeUnit.SECONDS)
             .addInterceptor(CacheControlInterceptor)
             .cookieJar(cookieJar)
             .followRedirects(followRedirects = followRedirectsEnable())
-            .retryOnConnectionFailure(true)
             .cache(cache = Cache(cacheDirectory, 10 * 1024 * 1024))
             .build()
     }
@@ -46,11 +41,12 @@ object OkApiClient : ApiRequest {
 
     override fun sendGetRequestWithUrl(url: String): Document? {
         val request = Request.Builder().get().url(url).build()
-        val response = mClient.newCall(request).execute()
-        return when (response.code) {
-            in 200..299 -> Jsoup.parse(response.body?.string())
-            302 -> throw RequestTooOftenException()
-            else -> null
+        return RequestLifecycle.execute(mClient.newCall(request)) { response ->
+            when (response.code) {
+                in 200..299 -> response.parseDocument()
+                302 -> throw RequestTooOftenException()
+                else -> null
+            }
         }
 
     }
@@ -58,7 +54,7 @@ object OkApiClient : ApiRequest {
     override fun sendPostRequestWithUrl(
         url: String,
         form: MutableMap<String, String>?
-    ): Connection.Response {
+    ): Document? {
         TODO("not implemented")
     }
 
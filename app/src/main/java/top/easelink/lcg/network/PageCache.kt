@@ -0,0 +1,184 @@
+package top.easelink.lcg.network
+
+import okhttp3.*
+import okhttp3.HttpUrl.Companion.toHttpUrlOrNull
+import okio.blackholeSink
+import timber.log.Timber
+import top.easelink.lcg.appinit.LCGApp
+import top.easelink.lcg.config.AppConfig
+import top.easelink.lcg.utils.SharedPreferencesHelper
+import top.easelink.lcg.utils.getCookieIdentity
+import top.easelink.lcg.utils.threadIdOf
+import java.io.File
+import java.io.IOException
+import java.util.*
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.TimeUnit
+
+/**
+ * Disk cache for forum list and thread pages.
+ *
+ * Discuz marks every page as uncacheable, [interceptor] rewrites the headers of those pages so that
+ * OkHttp stores them and revalidates them with If-None-Match / If-Modified-Since.
+ * Within [AppConfig.pageCacheStaleSeconds], [readStale] serves the page from disk right away
+ * and [revalidate] refreshes it in background (stale-while-revalidate).
+ * Only list and thread pages are cached, never forms or actions sent with GET.
+ */
+object PageCache {
+
+    private const val CACHE_SIZE = 20 * 1024 * 1024L
+    private const val SP_KEY_CACHE_OWNER = "page_cache_owner"
+
+    private val THREAD_PAGE = Regex("thread-\\d+-\\d+-\\d+\\.html")
+    private val FORUM_PAGE = Regex("forum-\\d+-\\d+\\.html")
+    private val CACHEABLE_MODS = setOf("forumdisplay", "guide", "viewthread")
+
+    val cache: Cache by lazy {
+        Cache(File(LCGApp.context.cacheDir, "page_cache"), CACHE_SIZE)
+    }
+
+    private val revalidating: MutableSet<String> =
+        Collections.newSetFromMap(ConcurrentHashMap<String, Boolean>())
+
+    // tid -> when user changed the thread
+    private val changedThreads = ConcurrentHashMap<Long, Long>()
+
+    @Volatile
+    private var owner: Int? = null
+
+    val interceptor = Interceptor { chain ->
+        val request = chain.request()
+        val response = chain.proceed(request)
+        if (response.isSuccessful && isCacheable(request.url)) {
+            // stale immediately, so a normal request always revalidates,
+            // while a request with max-stale can still be served from disk
+            response.newBuilder()
+                .removeHeader("Pragma")
+                .removeHeader("Expires")
+                .header("Cache-Control", "private, max-age=0")
+                .build()
+        } else {
+            response
+        }
+    }
+
+    fun isCacheable(url: HttpUrl): Boolean {
+        val lastSegment = url.pathSegments.lastOrNull().orEmpty()
+        return if (lastSegment == "forum.php") {
+            url.queryParameter("mod") in CACHEABLE_MODS && url.queryParameter("inajax") == null
+        } else {
+            THREAD_PAGE.matches(lastSegment) || FORUM_PAGE.matches(lastSegment)
+        }
+    }
+
+    /**
+     * User has replied to thread [tid], its pages on disk miss that reply.
+     * They are not served stale for a stale window, a page cached before now is too old after it.
+     */
+    fun onThreadChanged(tid: Long) {
+        changedThreads[tid] = System.currentTimeMillis()
+    }
+
+    /**
+     * @return page from disk read by [read] if it's cached and younger than stale window,
+     * otherwise null
+     */
+    fun <T> readStale(client: OkHttpClient, url: String, read: (Response) -> T): T? {
+        val httpUrl = url.toHttpUrlOrNull()
+        if (httpUrl == null || !isCacheable(httpUrl)) {
+            return null
+        }
+        checkOwner()
+        val staleSeconds = AppConfig.pageCacheStaleSeconds
+        if (staleSeconds <= 0 || isChanged(url, staleSeconds)) {
+            return null
+        }
+        val request = Request.Builder()
+            .url(httpUrl)
+            .cacheControl(
+                CacheControl.Builder()
+                    .onlyIfCached()
+                    .maxStale(staleSeconds, TimeUnit.SECONDS)
+                    .build()
+            )
+            .build()
+        return try {
+            client.newCall(request).execute().use {
+                // 504 means nothing usable in cache
+                if (it.isSuccessful && it.cacheResponse != null) {
+                    read(it)
+                } else {
+                    null
+                }
+            }
+        } catch (e: IOException) {
+            Timber.w(e)
+            null
+        }
+    }
+
+    /**
+     * Refresh the page in background, the response is read to the end after [onRefreshed]
+     * so that it's written to cache
+     */
+    fun revalidate(client: OkHttpClient, url: String, onRefreshed: (Response) -> Unit) {
+        if (!revalidating.add(url)) {
+            return
+        }
+        client
+            .newCall(Request.Builder().url(url).get().build())
+            .enqueue(object : Callback {
+                override fun onFailure(call: Call, e: IOException) {
+                    revalidating.remove(url)
+                    Timber.w(e)
+                }
+
+                override fun onResponse(call: Call, response: Response) {
+                    try {
+                        response.use {
+                            onRefreshed(it)
+                            it.body?.source()?.readAll(blackholeSink())
+                        }
+                    } catch (e: Exception) {
+                        Timber.w(e)
+                    } finally {
+                        revalidating.remove(url)
+                    }
+                }
+            })
+    }
+
+    private fun isChanged(url: String, staleSeconds: Int): Boolean {
+        val tid = threadIdOf(url) ?: return false
+        val changedAt = changedThreads[tid] ?: return false
+        if (System.currentTimeMillis() - changedAt < TimeUnit.SECONDS.toMillis(staleSeconds.toLong())) {
+            return true
+        }
+        changedThreads.remove(tid, changedAt)
+        return false
+    }
+
+    fun clear() {
+        try {
+            cache.evictAll()
+        } catch (e: IOException) {
+            Timber.e(e)
+        }
+    }
+
+    /**
+     * Pages carry user's own info (formhash, messages), drop all of them once user changes
+     */
+    private fun checkOwner() {
+        val identity = getCookieIdentity().hashCode()
+        if (owner == identity) {
+            return
+        }
+        val sp = SharedPreferencesHelper.getDefaultSp()
+        if (sp.getInt(SP_KEY_CACHE_OWNER, identity) != identity) {
+            clear()
+        }
+        SharedPreferencesHelper.setPreference(sp, SP_KEY_CACHE_OWNER, identity)
+        owner = identity
+    }
+}
@@ -0,0 +1,35 @@
+package top.easelink.lcg.network
+
+import kotlinx.coroutines.sync.Semaphore
+import kotlinx.coroutines.sync.withPermit
+import kotlinx.coroutines.withContext
+import org.jsoup.nodes.Document
+import top.easelink.framework.threadpool.IOPool
+import top.easelink.framework.threadpool.ParsePool
+
+/**
+ * Loads a page in two stages: [IOPool] threads only download the body, parsing and model
+ * building run on [ParsePool], which has one thread per core.
+ * A long parse no longer holds one of the few api threads.
+ *
+ * At most [MAX_IN_FLIGHT] pages are between the stages, loads beyond that wait before downloading,
+ * so when parsing falls behind the network is held back instead of piling bodies up in memory.
+ * Network concurrency is the size of [IOPool], parse parallelism the size of [ParsePool].
+ */
+object PagePipeline {
+
+    private val MAX_IN_FLIGHT = Runtime.getRuntime().availableProcessors() * 2
+
+    private val inFlight = Semaphore(MAX_IN_FLIGHT)
+
+    suspend fun <T> load(query: String, extract: (Document) -> T): T {
+        return inFlight.withPermit {
+            val page = withContext(IOPool) {
+                JsoupClient.downloadPage(query)
+            }
+            withContext(ParsePool) {
+                extract(page.parse())
+            }
+        }
+    }
+}
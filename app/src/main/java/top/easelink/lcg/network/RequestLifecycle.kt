@@ -0,0 +1,76 @@
+package top.easelink.lcg.network
+
+import androidx.lifecycle.ViewModel
+import androidx.lifecycle.viewModelScope
+import kotlinx.coroutines.*
+import okhttp3.Call
+import okhttp3.Response
+import top.easelink.framework.threadpool.IOPool
+import java.io.IOException
+import kotlin.coroutines.CoroutineContext
+
+/**
+ * Ties blocking http calls to the coroutine which sends them.
+ *
+ * Requests launched by [launchRequest] bind their [Job] to the worker thread,
+ * [execute] cancels the [Call] as soon as that job is cancelled (e.g. ViewModel is cleared),
+ * so the socket read is aborted and the response is never parsed.
+ * Calls made outside of a bound job behave as before.
+ */
+object RequestLifecycle {
+
+    private val currentJob = ThreadLocal<Job?>()
+
+    fun bind(job: Job): CoroutineContext = currentJob.asContextElement(job)
+
+    /**
+     * @return false only if the request is bound to a job which has been cancelled
+     */
+    fun isActive(): Boolean = currentJob.get()?.isActive ?: true
+
+    @Throws(CancellationException::class)
+    fun ensureActive() {
+        if (!isActive()) {
+            throw CancellationException("Request cancelled")
+        }
+    }
+
+    @Throws(IOException::class, CancellationException::class)
+    fun <T> execute(call: Call, block: (Response) -> T): T {
+        val job = currentJob.get() ?: return call.execute().use(block)
+        ensureActive()
+        // a child is cancelled right away with its parent, unlike the parent's own completion
+        val watcher = Job(job)
+        watcher.invokeOnCompletion { cause ->
+            if (cause != null) {
+                call.cancel()
+            }
+        }
+        try {
+            return call.execute().use {
+                // cancelled while waiting for headers, don't touch the body
+                ensureActive()
+                block(it)
+            }
+        } catch (e: IOException) {
+            if (!job.isActive) {
+                throw CancellationException("Request cancelled").apply { initCause(e) }
+            }
+            throw e
+        } finally {
+            watcher.complete()
+        }
+    }
+}
+
+/**
+ * Launch a request in [viewModelScope], it's cancelled together with the ViewModel
+ */
+fun ViewModel.launchRequest(
+    context: CoroutineContext = IOPool,
+    block: suspend CoroutineScope.() -> Unit
+): Job = viewModelScope.launch(context) {
+    withContext(RequestLifecycle.bind(coroutineContext[Job]!!)) {
+        block()
+    }
+}
@@ -0,0 +1,160 @@
+package top.easelink.lcg.network
+
+import okhttp3.HttpUrl
+import timber.log.Timber
+import top.easelink.lcg.BuildConfig
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Which kind of page a request belongs to, derived from its url
+ */
+enum class RequestTag {
+    FORUM_LIST,
+    THREAD,
+    SEARCH,
+    NOTIFICATION,
+    OTHER;
+
+    companion object {
+        private val THREAD_PAGE = Regex("thread-\\d+-\\d+-\\d+\\.html")
+        private val FORUM_PAGE = Regex("forum-\\d+-\\d+\\.html")
+
+        fun of(url: HttpUrl): RequestTag {
+            val lastSegment = url.pathSegments.lastOrNull().orEmpty()
+            val mod = url.queryParameter("mod")
+            return when {
+                THREAD_PAGE.matches(lastSegment) -> THREAD
+                FORUM_PAGE.matches(lastSegment) -> FORUM_LIST
+                lastSegment == "forum.php" && mod == "viewthread" -> THREAD
+                lastSegment == "forum.php" && (mod == "forumdisplay" || mod == "guide") -> FORUM_LIST
+                lastSegment == "search.php" || !url.host.contains("52pojie") -> SEARCH
+                lastSegment == "home.php" && url.queryParameter("do").let { it == "notice" || it == "pm" } -> NOTIFICATION
+                else -> OTHER
+            }
+        }
+    }
+}
+
+enum class Phase {
+    DNS,
+    CONNECT,
+    TLS,
+    // request sent -> response headers received
+    TTFB,
+    DOWNLOAD,
+    // Document parsing, body is streamed so this overlaps with DOWNLOAD
+    PARSE,
+    // selector work which turns Document into models
+    EXTRACT,
+    TOTAL
+}
+
+class PhaseStats(
+    val tag: RequestTag,
+    val phase: Phase,
+    val count: Int,
+    val p50Ms: Long,
+    val p90Ms: Long,
+    val p99Ms: Long
+) {
+    override fun toString(): String {
+        return "$tag/$phase n=$count p50=${p50Ms}ms p90=${p90Ms}ms p99=${p99Ms}ms"
+    }
+}
+
+/**
+ * Keeps the latest [WINDOW_SIZE] samples of each tag and phase, percentiles are computed on query.
+ */
+object RequestMetrics {
+
+    private const val WINDOW_SIZE = 128
+    private const val DUMP_INTERVAL = 50
+
+    private val windows = ConcurrentHashMap<String, Window>()
+    private val totalCount = AtomicInteger(0)
+
+    fun record(tag: RequestTag, phase: Phase, durationNs: Long) {
+        if (durationNs < 0) {
+            return
+        }
+        windows
+            .getOrPut("${tag.name}|${phase.name}") { Window(tag, phase) }
+            .add(durationNs)
+        if (BuildConfig.DEBUG && phase == Phase.TOTAL
+            && totalCount.incrementAndGet() % DUMP_INTERVAL == 0
+        ) {
+            dump()
+        }
+    }
+
+    /**
+     * Measure [block] and record it under [tag] and [phase]
+     */
+    inline fun <T> measure(tag: RequestTag, phase: Phase, block: () -> T): T {
+        val start = System.nanoTime()
+        try {
+            return block()
+        } finally {
+            record(tag, phase, System.nanoTime() - start)
+        }
+    }
+
+    fun stats(tag: RequestTag, phase: Phase): PhaseStats? {
+        return windows["${tag.name}|${phase.name}"]?.stats()
+    }
+
+    fun snapshot(): List<PhaseStats> {
+        return windows.values
+            .mapNotNull { it.stats() }
+            .sortedWith(compareBy({ it.tag }, { it.phase }))
+    }
+
+    fun dump() {
+        snapshot().forEach {
+            Timber.d(it.toString())
+        }
+    }
+
+    fun reset() {
+        windows.clear()
+    }
+
+    private class Window(val tag: RequestTag, val phase: Phase) {
+        private val samples = LongArray(WINDOW_SIZE)
+        private var next = 0
+        private var size = 0
+
+        @Synchronized
+        fun add(durationNs: Long) {
+            samples[next] = durationNs
+            next = (next + 1) % WINDOW_SIZE
+            if (size < WINDOW_SIZE) size++
+        }
+
+        fun stats(): PhaseStats? {
+            val sorted = synchronized(this) {
+                samples.copyOf(size)
+            }
+            if (sorted.isEmpty()) {
+                return null
+            }
+            sorted.sort()
+            return PhaseStats(
+                tag,
+                phase,
+                sorted.size,
+                toMs(sorted.percentile(50)),
+                toMs(sorted.percentile(90)),
+                toMs(sorted.percentile(99))
+            )
+        }
+
+        private fun LongArray.percentile(p: Int): Long {
+            return this[(this.size - 1) * p / 100]
+        }
+
+        private fun toMs(ns: Long) = TimeUnit.NANOSECONDS.toMillis(ns)
+    }
+}
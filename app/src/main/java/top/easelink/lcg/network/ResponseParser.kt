@@ -0,0 +1,97 @@
+package top.easelink.lcg.network
+
+import okhttp3.Response
+import okio.blackholeSink
+import org.jsoup.Jsoup
+import org.jsoup.nodes.Document
+import org.jsoup.parser.Parser
+import top.easelink.lcg.parser.AjaxPayloadReader
+import top.easelink.lcg.parser.ForumListReader
+import top.easelink.lcg.parser.parseAjaxPayload
+import java.io.ByteArrayInputStream
+import java.nio.charset.Charset
+
+/**
+ * Parse response into [Document] by feeding the body stream into the tree builder.
+ * The body is never buffered as a whole byte array or String, so peak heap
+ * per page is roughly the size of the DOM.
+ * Charset comes from Content-Type, if it's absent Jsoup detects it from BOM/meta.
+ * [sniffer] sees the bytes on their way to the parser.
+ */
+fun Response.parseDocument(
+    parser: Parser = Parser.htmlParser(),
+    sniffer: SessionSniffer? = null
+): Document {
+    val baseUri = request.url.toString()
+    val body = body ?: return Document(baseUri)
+    val charset = body.contentType()?.charset()
+    val input = sniffer?.wrap(body.byteStream(), charset) ?: body.byteStream()
+    return RequestMetrics.measure(RequestTag.of(request.url), Phase.PARSE) {
+        Jsoup.parse(input, charset?.name(), baseUri, parser)
+    }
+}
+
+/**
+ * Body of a response read into memory, so that it's parsed on another thread than the one
+ * which downloads it. The bytes are never changed, a page can be parsed by several callers.
+ */
+class RawPage(
+    private val bytes: ByteArray,
+    private val charset: Charset?,
+    private val baseUri: String,
+    private val tag: RequestTag
+) {
+    fun parse(parser: Parser = Parser.htmlParser()): Document {
+        return RequestMetrics.measure(tag, Phase.PARSE) {
+            Jsoup.parse(ByteArrayInputStream(bytes), charset?.name(), baseUri, parser)
+        }
+    }
+}
+
+fun Response.readPage(sniffer: SessionSniffer? = null): RawPage {
+    val charset = body?.contentType()?.charset()
+    val bytes = body?.let { body ->
+        sniffer?.wrap(body.byteStream(), charset)?.use { it.readBytes() } ?: body.bytes()
+    }
+    return RawPage(bytes ?: ByteArray(0), charset, request.url.toString(), RequestTag.of(request.url))
+}
+
+/**
+ * Parse a forum list page, only the parts its parsers use are turned into a [Document],
+ * see [ForumListReader].
+ *
+ * The scan stops once the thread table is closed, with [earlyExit] the rest of body is never
+ * downloaded, otherwise it's drained without scanning so the page still lands in [PageCache].
+ */
+fun Response.parseForumList(earlyExit: Boolean, sniffer: SessionSniffer? = null): Document {
+    val baseUri = request.url.toString()
+    val body = body ?: return Document(baseUri)
+    val doc = RequestMetrics.measure(RequestTag.FORUM_LIST, Phase.PARSE) {
+        val charset = body.contentType()?.charset(SITE_CHARSET) ?: SITE_CHARSET
+        val input = body.source().inputStream().let {
+            sniffer?.wrap(it, charset) ?: it
+        }
+        val html = ForumListReader(input.reader(charset)).read()
+        Jsoup.parse(html, baseUri)
+    }
+    if (!earlyExit) {
+        body.source().readAll(blackholeSink())
+    }
+    return doc
+}
+
+/**
+ * Parse the payload of an inajax response straight from the body stream, see [AjaxPayloadReader]
+ *
+ * @return null if the payload is `false`
+ */
+fun Response.parseAjax(): Document? {
+    val baseUri = request.url.toString()
+    val body = body ?: return Document(baseUri)
+    return RequestMetrics.measure(RequestTag.of(request.url), Phase.PARSE) {
+        val charset = body.contentType()?.charset(SITE_CHARSET) ?: SITE_CHARSET
+        parseAjaxPayload(body.source().inputStream().reader(charset), baseUri)
+    }
+}
+
+private val SITE_CHARSET = Charset.forName("gbk")
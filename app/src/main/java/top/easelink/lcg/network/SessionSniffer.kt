@@ -0,0 +1,197 @@
+package top.easelink.lcg.network
+
+import java.io.ByteArrayOutputStream
+import java.io.FilterInputStream
+import java.io.InputStream
+import java.nio.charset.Charset
+import java.util.*
+
+/**
+ * Picks the session info out of a page while its bytes are read by the parser:
+ * formhash (`<input name="formhash" value="...">`) and the prompt menu (`ul#myprompt_menu`).
+ *
+ * Both live in the page header, so scanning stops once they are found or after [SCAN_LIMIT]
+ * bytes, the rest of the stream is passed through untouched.
+ * Only `input` and `ul` tags are looked into, attributes are matched in any order.
+ * Tag names and the attributes wanted are ascii, they can be matched on raw bytes of
+ * gbk / utf-8 pages.
+ */
+class SessionSniffer(
+    wantFormHash: Boolean,
+    wantPromptMenu: Boolean
+) {
+
+    var formHash: String? = null
+        private set
+
+    private var promptMenuBytes: ByteArray? = null
+    private var charset: Charset = DEFAULT_CHARSET
+
+    private var formHashState = if (wantFormHash) SEARCHING else DONE
+    private var menuState = if (wantPromptMenu) SEARCHING else DONE
+    private var scanned = 0
+
+    // bytes between `<` and `>` of the current tag, latin-1 keeps them as they are in a string
+    private val tag = ByteArray(MAX_TAG_LENGTH)
+    private var tagLength = NOT_IN_TAG
+    private val menuEnd = ByteMatcher("</ul>")
+    private val menuBuffer = ByteArrayOutputStream()
+
+    val isDone: Boolean
+        get() = (formHashState == DONE && menuState == DONE) || scanned >= SCAN_LIMIT
+
+    /**
+     * html of the prompt menu, null if it's not found
+     */
+    val promptMenu: String?
+        get() = promptMenuBytes?.let { String(it, charset) }
+
+    fun wrap(input: InputStream, charset: Charset?): InputStream {
+        charset?.let { this.charset = it }
+        return object : FilterInputStream(input) {
+            override fun read(): Int {
+                return super.read().also {
+                    if (it >= 0 && !isDone) feed(it.toByte())
+                }
+            }
+
+            override fun read(b: ByteArray, off: Int, len: Int): Int {
+                return super.read(b, off, len).also {
+                    var i = 0
+                    while (i < it && !isDone) {
+                        feed(b[off + i])
+                        i++
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Scan [input] by itself, until everything wanted is found
+     */
+    fun scan(input: InputStream, charset: Charset?) {
+        val buffer = ByteArray(BUFFER_SIZE)
+        wrap(input, charset).let {
+            while (!isDone && it.read(buffer) >= 0) {
+                // bytes are fed while read
+            }
+        }
+    }
+
+    private fun feed(b: Byte) {
+        scanned++
+        if (menuState == READING) {
+            menuBuffer.write(b.toInt())
+            if (menuEnd.feed(b)) {
+                promptMenuBytes = menuBuffer.toByteArray()
+                menuState = DONE
+            } else if (menuBuffer.size() >= MAX_MENU_LENGTH) {
+                menuState = DONE
+            }
+        }
+        when {
+            b == LT -> tagLength = 0
+            tagLength == NOT_IN_TAG -> Unit
+            b == GT -> {
+                onTag(String(tag, 0, tagLength, Charsets.ISO_8859_1))
+                tagLength = NOT_IN_TAG
+            }
+            // too long to be one of the tags wanted
+            tagLength == MAX_TAG_LENGTH -> tagLength = NOT_IN_TAG
+            else -> tag[tagLength++] = b
+        }
+    }
+
+    private fun onTag(tag: String) {
+        val name = tag.takeWhile { !it.isWhitespace() && it != '/' }.toLowerCase(Locale.ROOT)
+        when {
+            name == "input" && formHashState == SEARCHING -> {
+                val attributes = attributesOf(tag)
+                if (attributes["name"] == "formhash") {
+                    attributes["value"]
+                        ?.takeIf { it.isNotEmpty() && it.length <= MAX_FORM_HASH_LENGTH }
+                        ?.let {
+                            formHash = it
+                            formHashState = DONE
+                        }
+                }
+            }
+            name == "ul" && menuState == SEARCHING -> {
+                if (attributesOf(tag)["id"] == "myprompt_menu") {
+                    menuBuffer.write("<$tag>".toByteArray(Charsets.ISO_8859_1))
+                    menuEnd.reset()
+                    menuState = READING
+                }
+            }
+        }
+    }
+
+    private fun attributesOf(tag: String): Map<String, String> {
+        return ATTRIBUTE.findAll(tag).associate {
+            val (name, doubleQuoted, singleQuoted, bare) = it.destructured
+            name.toLowerCase(Locale.ROOT) to doubleQuoted.ifEmpty { singleQuoted.ifEmpty { bare } }
+        }
+    }
+
+    /**
+     * Streaming matcher of an ascii pattern (KMP)
+     */
+    private class ByteMatcher(pattern: String) {
+        private val pattern = pattern.toByteArray(Charsets.US_ASCII)
+        private val fallback = IntArray(this.pattern.size)
+        private var matched = 0
+
+        init {
+            var k = 0
+            for (i in 1 until this.pattern.size) {
+                while (k > 0 && this.pattern[i] != this.pattern[k]) {
+                    k = fallback[k - 1]
+                }
+                if (this.pattern[i] == this.pattern[k]) {
+                    k++
+                }
+                fallback[i] = k
+            }
+        }
+
+        /**
+         * @return true once the whole pattern is matched
+         */
+        fun feed(b: Byte): Boolean {
+            while (matched > 0 && pattern[matched] != b) {
+                matched = fallback[matched - 1]
+            }
+            if (pattern[matched] == b) {
+                matched++
+            }
+            if (matched == pattern.size) {
+                matched = 0
+                return true
+            }
+            return false
+        }
+
+        fun reset() {
+            matched = 0
+        }
+    }
+
+    companion object {
+        private const val SCAN_LIMIT = 128 * 1024
+        private const val BUFFER_SIZE = 8192
+        private const val MAX_FORM_HASH_LENGTH = 32
+        private const val MAX_MENU_LENGTH = 8 * 1024
+        private const val MAX_TAG_LENGTH = 512
+        private const val NOT_IN_TAG = -1
+
+        private const val SEARCHING = 0
+        private const val READING = 1
+        private const val DONE = 2
+
+        private val LT = '<'.toByte()
+        private val GT = '>'.toByte()
+        private val ATTRIBUTE = Regex("""([\w-]+)\s*=\s*(?:"([^"]*)"|'([^']*)'|([^\s"'>]+))""")
+        private val DEFAULT_CHARSET = Charset.forName("gbk")
+    }
+}
@@ -0,0 +1,55 @@
+package top.easelink.lcg.network
+
+import java.util.concurrent.CancellationException
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.FutureTask
+
+/**
+ * Coalesces identical in-flight work.
+ * While a call for a key is running, callers with the same key don't start a new one,
+ * they wait for the running call and share its result (or its exception).
+ * Once the call finishes the key is released, so results are never cached here.
+ * If the caller who runs the call is cancelled, callers waiting on it start their own call.
+ */
+class SingleFlight<K : Any, V> {
+
+    private val inFlight = ConcurrentHashMap<K, FutureTask<V>>()
+
+    /**
+     * @param share applied to the result handed to every caller, the one who runs the call
+     * included, e.g. to give each of them their own copy of a mutable result.
+     * The result itself is never handed out, so copying it is safe while others use their copies.
+     */
+    fun execute(key: K, share: (V) -> V = { it }, block: () -> V): V {
+        while (true) {
+            val task = FutureTask(block)
+            val running = inFlight.putIfAbsent(key, task)
+            if (running == null) {
+                try {
+                    task.run()
+                    return share(await(task))
+                } finally {
+                    inFlight.remove(key, task)
+                }
+            }
+            try {
+                return share(await(running))
+            } catch (e: CancellationException) {
+                // the caller who sent the request has gone, send it again if this one is still here
+                if (!RequestLifecycle.isActive()) {
+                    throw e
+                }
+            }
+        }
+    }
+
+    private fun await(task: FutureTask<V>): V {
+        try {
+            return task.get()
+        } catch (e: ExecutionException) {
+            // rethrow the original exception so that callers can handle it as before
+            throw e.cause ?: e
+        }
+    }
+}
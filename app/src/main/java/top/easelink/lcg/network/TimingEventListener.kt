@@ -0,0 +1,88 @@
+package top.easelink.lcg.network
+
+import okhttp3.*
+import java.io.IOException
+import java.net.InetAddress
+import java.net.InetSocketAddress
+import java.net.Proxy
+
+/**
+ * Records network phases of a call into [RequestMetrics].
+ * Phases are skipped when they don't happen, ex: no DNS/connect/TLS on a pooled connection.
+ */
+class TimingEventListener(private val tag: RequestTag) : EventListener() {
+
+    private var callStart = 0L
+    private var dnsStart = 0L
+    private var connectStart = 0L
+    private var secureConnectStart = 0L
+    private var requestStart = 0L
+    private var bodyStart = 0L
+
+    override fun callStart(call: Call) {
+        callStart = System.nanoTime()
+    }
+
+    override fun dnsStart(call: Call, domainName: String) {
+        dnsStart = System.nanoTime()
+    }
+
+    override fun dnsEnd(call: Call, domainName: String, inetAddressList: List<InetAddress>) {
+        RequestMetrics.record(tag, Phase.DNS, System.nanoTime() - dnsStart)
+    }
+
+    override fun connectStart(call: Call, inetSocketAddress: InetSocketAddress, proxy: Proxy) {
+        connectStart = System.nanoTime()
+    }
+
+    override fun secureConnectStart(call: Call) {
+        secureConnectStart = System.nanoTime()
+    }
+
+    override fun secureConnectEnd(call: Call, handshake: Handshake?) {
+        RequestMetrics.record(tag, Phase.TLS, System.nanoTime() - secureConnectStart)
+    }
+
+    override fun connectEnd(
+        call: Call,
+        inetSocketAddress: InetSocketAddress,
+        proxy: Proxy,
+        protocol: Protocol?
+    ) {
+        RequestMetrics.record(tag, Phase.CONNECT, System.nanoTime() - connectStart)
+    }
+
+    override fun requestHeadersStart(call: Call) {
+        requestStart = System.nanoTime()
+    }
+
+    override fun responseHeadersStart(call: Call) {
+        if (requestStart > 0) {
+            RequestMetrics.record(tag, Phase.TTFB, System.nanoTime() - requestStart)
+        }
+    }
+
+    override fun responseBodyStart(call: Call) {
+        bodyStart = System.nanoTime()
+    }
+
+    override fun responseBodyEnd(call: Call, byteCount: Long) {
+        RequestMetrics.record(tag, Phase.DOWNLOAD, System.nanoTime() - bodyStart)
+        // body is read on the thread which executes the call
+        TrafficCounter.add(byteCount)
+    }
+
+    override fun callEnd(call: Call) {
+        RequestMetrics.record(tag, Phase.TOTAL, System.nanoTime() - callStart)
+    }
+
+    override fun callFailed(call: Call, ioe: IOException) {
+        // failed calls would distort the percentiles, drop them
+    }
+
+    companion object {
+        val FACTORY = EventListener.Factory { call ->
+            TimingEventListener(RequestTag.of(call.request().url))
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package top.easelink.lcg.network
+
+/**
+ * Counts bytes of response bodies read from network on the current thread,
+ * responses served from cache are not counted.
+ */
+object TrafficCounter {
+
+    private val counter = ThreadLocal<LongArray?>()
+
+    /**
+     * @return bytes read from network by calls executed in [block]
+     */
+    fun count(block: () -> Unit): Long {
+        val previous = counter.get()
+        val current = LongArray(1)
+        counter.set(current)
+        try {
+            block()
+        } finally {
+            counter.set(previous)
+            previous?.let { it[0] += current[0] }
+        }
+        return current[0]
+    }
+
+    internal fun add(byteCount: Long) {
+        counter.get()?.let { it[0] += byteCount }
+    }
+}
@@ -16,14 +16,12 @@ import coil.load
 import coil.transform.RoundedCornersTransformation
 import kotlinx.android.synthetic.main.item_post_view.view.*
 import kotlinx.android.synthetic.main.item_reply_view.view.*
-import kotlinx.coroutines.GlobalScope
-import kotlinx.coroutines.launch
 import org.greenrobot.eventbus.EventBus
 import timber.log.Timber
 import top.easelink.framework.base.BaseViewHolder
 import top.easelink.framework.customview.htmltextview.DrawPreCodeSpan
 import top.easelink.framework.customview.htmltextview.HtmlCoilImageGetter
-import top.easelink.framework.threadpool.Main
+import top.easelink.framework.recyclerview.LoadMoreController
 import top.easelink.framework.utils.convertViewToBitmap
 import top.easelink.framework.utils.dp2px
 import top.easelink.framework.utils.dpToPx
@@ -60,6 +58,22 @@ class ArticleAdapter(
     private val mPostList: MutableList<Post> = ArrayList()
     private var fragmentManager: WeakReference<FragmentManager>? = null
 
+    private val loadMoreController = LoadMoreController(
+        hasMore = { mPostList.isNotEmpty() && mListener.hasNextPage() }
+    ) { done ->
+        mListener.fetchArticlePost(ArticleAdapterListener.FETCH_POST_MORE, done)
+    }
+
+    override fun onAttachedToRecyclerView(recyclerView: RecyclerView) {
+        super.onAttachedToRecyclerView(recyclerView)
+        loadMoreController.attach(recyclerView)
+    }
+
+    override fun onDetachedFromRecyclerView(recyclerView: RecyclerView) {
+        loadMoreController.detach()
+        super.onDetachedFromRecyclerView(recyclerView)
+    }
+
     override fun getItemCount() = when {
         mPostList.isEmpty() -> 1 // show empty view
         mPostList.size > 10 -> mPostList.size + 1 // for post more than 10 add a load more item
@@ -131,7 +145,11 @@ class ArticleAdapter(
     ) : BaseViewHolder(view), View.OnClickListener {
 
         private var post: Post? = null
-        private val htmlHttpImageGetter: Html.ImageGetter = HtmlCoilImageGetter(view.context, view.content_text_view)
+        private val htmlHttpImageGetter: Html.ImageGetter = HtmlCoilImageGetter(
+            view.context,
+            view.content_text_view,
+            mListener::archivedImage
+        )
 
         override fun onBind(position: Int) {
             val p = mPostList.getOrNull(position) ?: return
@@ -250,7 +268,11 @@ class ArticleAdapter(
 
         private var post: Post? = null
         private val htmlHttpImageGetter: Html.ImageGetter by lazy {
-            HtmlCoilImageGetter(view.context, view.reply_content_text_view)
+            HtmlCoilImageGetter(
+                view.context,
+                view.reply_content_text_view,
+                mListener::archivedImage
+            )
         }
 
         @SuppressLint("SetTextI18n")
@@ -400,10 +422,11 @@ class ArticleAdapter(
     inner class LoadMoreViewHolder internal constructor(private val mView: View) :
         BaseViewHolder(mView) {
         override fun onBind(position: Int) {
-            mListener.fetchArticlePost(ArticleAdapterListener.FETCH_POST_MORE) { res ->
-                GlobalScope.launch(Main) {
-                    mView.visibility = if (res) View.GONE else View.VISIBLE
-                }
+            if (mListener.hasNextPage()) {
+                mView.visibility = View.VISIBLE
+                loadMoreController.loadMore()
+            } else {
+                mView.visibility = View.GONE
             }
         }
     }
@@ -89,6 +89,21 @@ class ArticleFragment(private var articleUrl: String) :
                 it.setFragmentManager(childFragmentManager)
             }
 
+            // where the thread is read up to, see ReadStateStore
+            addOnScrollListener(object : RecyclerView.OnScrollListener() {
+                override fun onScrollStateChanged(recyclerView: RecyclerView, newState: Int) {
+                    when (newState) {
+                        RecyclerView.SCROLL_STATE_DRAGGING -> viewModel.cancelResume()
+                        RecyclerView.SCROLL_STATE_IDLE -> mLayoutManager.findFirstVisibleItemPosition()
+                            .takeIf { it != RecyclerView.NO_POSITION }
+                            ?.let { viewModel.onPostShown(it) }
+                    }
+                }
+            })
+            viewModel.resumePosition.observe(viewLifecycleOwner, androidx.lifecycle.Observer {
+                mLayoutManager.scrollToPositionWithOffset(it, 0)
+            })
+
             viewModel.posts.observe(viewLifecycleOwner, androidx.lifecycle.Observer {
                 val url = it[0].replyUrl
                 if (it.size > 0 && url != null) {
@@ -127,6 +142,8 @@ class ArticleFragment(private var articleUrl: String) :
                             } ?: showMessage(R.string.download_link_not_found)
                     }
                     R.id.action_add_to_my_favorite -> viewModel.addToFavorite()
+                    R.id.action_download_offline -> viewModel.downloadForOffline()
+                    R.id.action_delete_offline -> viewModel.deleteOffline()
                     else -> {
                     }
                 }
@@ -140,8 +157,7 @@ class ArticleFragment(private var articleUrl: String) :
         when (requestCode) {
             REPLY_POST_RESULT -> {
                 if (resultCode == 1) {
-                    data?.getBundleExtra("post")
-                        ?.getParcelable<Post>("post")
+                    (data?.getBundleExtra("post")?.getSerializable("post") as? Post)
                         ?.let {
                             viewModel.addPostToTop(it)
                             viewDataBinding.postRecyclerView.scrollToPosition(1)
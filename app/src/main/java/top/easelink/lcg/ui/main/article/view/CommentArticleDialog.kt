@@ -75,7 +75,7 @@ class CommentArticleDialog : TopDialog() {
     private fun setResult(content: String, success: Boolean) {
         if (targetFragment != null) {
             val bundle = Bundle().apply {
-                putParcelable(
+                putSerializable(
                     "post", Post(
                         UserData.username,
                         UserData.avatar,
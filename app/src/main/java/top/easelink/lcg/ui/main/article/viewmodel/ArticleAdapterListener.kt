@@ -1,9 +1,20 @@
 package top.easelink.lcg.ui.main.article.viewmodel
 
+import android.graphics.Bitmap
+
 interface ArticleAdapterListener {
+    /**
+     * @param callback invoked with whether posts are fetched
+     */
     fun fetchArticlePost(type: Int, callback: (Boolean) -> Unit)
+    fun hasNextPage(): Boolean
     fun replyAdd(url: String)
 
+    /**
+     * @return image of a thread downloaded for offline reading, called on a worker thread
+     */
+    fun archivedImage(url: String): Bitmap? = null
+
     companion object {
         const val FETCH_POST_INIT = 0
         const val FETCH_POST_MORE = 1
@@ -1,27 +1,43 @@
 package top.easelink.lcg.ui.main.article.viewmodel
 
+import android.graphics.Bitmap
+import android.os.Handler
+import android.os.Looper
 import android.text.TextUtils
+import androidx.annotation.MainThread
 import androidx.lifecycle.MutableLiveData
 import androidx.lifecycle.ViewModel
+import kotlinx.coroutines.CancellationException
 import kotlinx.coroutines.GlobalScope
 import kotlinx.coroutines.launch
 import timber.log.Timber
+import top.easelink.framework.threadpool.BackGroundPool
 import top.easelink.framework.threadpool.IOPool
 import top.easelink.lcg.R
+import top.easelink.lcg.appinit.LCGApp
 import top.easelink.lcg.config.AppConfig
 import top.easelink.lcg.mta.EVENT_ADD_TO_FAVORITE
 import top.easelink.lcg.mta.sendEvent
+import top.easelink.lcg.network.launchRequest
 import top.easelink.lcg.ui.main.article.viewmodel.ArticleAdapterListener.Companion.FETCH_POST_INIT
 import top.easelink.lcg.ui.main.article.viewmodel.ArticleAdapterListener.Companion.FETCH_POST_MORE
 import top.easelink.lcg.ui.main.model.BlockException
 import top.easelink.lcg.ui.main.model.NetworkException
 import top.easelink.lcg.ui.main.source.local.ArticlesLocalDataSource
+import top.easelink.lcg.ui.main.source.local.ReadStateStore
+import top.easelink.lcg.ui.main.source.local.SearchIndex
+import top.easelink.lcg.ui.main.source.local.ThreadArchive
+import top.easelink.lcg.ui.main.source.local.ThreadStore
 import top.easelink.lcg.ui.main.source.model.ArticleAbstractResponse
+import top.easelink.lcg.ui.main.source.model.ArticleDetail
 import top.easelink.lcg.ui.main.source.model.ArticleEntity
 import top.easelink.lcg.ui.main.source.model.Post
 import top.easelink.lcg.ui.main.source.remote.ArticlesRemoteDataSource
+import top.easelink.lcg.ui.main.source.remote.ThreadDownloader
 import top.easelink.lcg.utils.RegexUtils
 import top.easelink.lcg.utils.showMessage
+import top.easelink.lcg.utils.threadIdOf
+import top.easelink.lcg.utils.threadPageOf
 import java.io.IOException
 import java.util.*
 
@@ -33,18 +49,46 @@ class ArticleViewModel : ViewModel(), ArticleAdapterListener {
     val articleTitle = MutableLiveData<String>()
     val isLoading = MutableLiveData<Boolean>()
 
+    // post to scroll to once the thread is opened where it was left
+    val resumePosition = MutableLiveData<Int>()
+
     private var mUrl: String? = null
+    private var threadId: Long? = null
     private var nextPageUrl: String? = null
 
+    // posts of the first page come first in posts, see refreshFirstPage
+    private var firstPageSize = 0
+
+    // page and post where the thread was left, pages are loaded up to it, see resume
+    @Volatile
+    private var resumeTarget: Pair<Int, Int>? = null
+    private val mainHandler = Handler(Looper.getMainLooper())
+
+    // page number of the first page shown and where each page starts in posts, for read state
+    private var firstPage = 1
+    private val pageStarts = mutableListOf<Int>()
+
     // formhash is used for add favorite/reply/rate etc
     private var mFormHash: String? = null
     private var articleAbstract: ArticleAbstractResponse? = null
 
+    // set if the thread is downloaded for offline reading
+    @Volatile
+    private var archive: ThreadArchive.Archive? = null
+    private var isDownloading = false
+    private var isLoadingMore = false
+
     fun setUrl(url: String) {
         mUrl = url
+        threadId = threadIdOf(url)
     }
 
     override fun fetchArticlePost(type: Int, callback: (Boolean) -> Unit) {
+        // the adapter and resume may both ask for the next page
+        if (type == FETCH_POST_MORE && isLoadingMore) {
+            callback.invoke(false)
+            return
+        }
         isLoading.value = true
         val query: String? =
             when (type) {
@@ -55,47 +99,254 @@ class ArticleViewModel : ViewModel(), ArticleAdapterListener {
 
         if (query.isNullOrBlank()) {
             isLoading.value = false
+            callback.invoke(false)
             return
         }
-        GlobalScope.launch(IOPool) {
+        if (type == FETCH_POST_MORE) {
+            isLoadingMore = true
+        }
+        launchRequest {
+            var success = false
             try {
-                ArticlesRemoteDataSource.getArticleDetail(query)?.let {
-                    articleAbstract = it.articleAbstractResponse
-                    if (it.articleTitle.isNotBlank()) {
-                        articleTitle.postValue(it.articleTitle)
-                    }
-                    if (it.postList.isNotEmpty()) {
-                        if (type == FETCH_POST_INIT) {
-                            posts.postValue(it.postList.toMutableList())
-                        } else {
-                            val list = posts.value
-                            if (list != null && list.isNotEmpty()) {
-                                list.addAll(it.postList)
-                                posts.postValue(list)
-                            } else {
-                                posts.postValue(it.postList.toMutableList())
-                            }
-                        }
-                    }
-                    nextPageUrl = it.nextPageUrl.also { url ->
-                        callback.invoke(url.isEmpty())
+                fetchPage(type, query) {
+                    success = it
+                    callback.invoke(it)
+                }
+            } finally {
+                // pages are posted by now, resume sees them
+                mainHandler.post {
+                    if (type == FETCH_POST_MORE) {
+                        isLoadingMore = false
                     }
-                    mFormHash = it.fromHash
-                    shouldDisplayPosts.postValue(true)
+                    if (success) resume() else resumeTarget = null
                 }
-            } catch (e: Exception) {
-                when (e) {
-                    is BlockException -> setArticleBlocked(e.alertMessage)
-                    is NetworkException -> setArticleNotFound()
-                    is IOException -> showMessage(R.string.io_error_mark_invalid)
-                    else -> showMessage(R.string.error)
+            }
+        }
+    }
+
+    private suspend fun fetchPage(type: Int, page: String, callback: (Boolean) -> Unit) {
+        if (type == FETCH_POST_INIT) {
+            archive = ThreadArchive.open(page)
+            firstPage = threadPageOf(page)
+            threadId?.let { tid ->
+                val state = ReadStateStore.get(tid)
+                if (state == null) {
+                    ReadStateStore.markRead(tid, firstPage, 0)
                 }
-                Timber.e(e)
+                resumeTarget = state?.let { resumeTargetOf(it) }
             }
+        }
+        // a thread read before is shown from disk at once, then refreshed
+        val stored = if (type == FETCH_POST_INIT) ThreadStore.get(page) else null
+        if (stored != null) {
+            showDetail(stored.detail, type)
+            index(page, stored.detail)
             isLoading.postValue(false)
+            callback.invoke(true)
+            if (stored.isStale) {
+                refreshFirstPage(page)
+            }
+            return
+        }
+        try {
+            val detail = ArticlesRemoteDataSource.loadArticleDetail(page)
+            showDetail(detail, type)
+            index(page, detail)
+            callback.invoke(true)
+        } catch (e: CancellationException) {
+            // page is closed
+            throw e
+        } catch (e: Exception) {
+            // a downloaded thread is read from its archive only while network is down or times out
+            val offline = e is IOException || e is NetworkException
+            val archived = if (offline) archive?.page(page) else null
+            if (archived != null) {
+                Timber.w(e)
+                showDetail(archived, type)
+                index(page, archived)
+                callback.invoke(true)
+                isLoading.postValue(false)
+                return
+            }
+            callback.invoke(false)
+            when (e) {
+                is BlockException -> setArticleBlocked(e.alertMessage)
+                is NetworkException -> setArticleNotFound()
+                is IOException -> showMessage(R.string.io_error_mark_invalid)
+                else -> showMessage(R.string.error)
+            }
+            Timber.e(e)
+        }
+        isLoading.postValue(false)
+    }
+
+    private fun showDetail(detail: ArticleDetail, type: Int) {
+        articleAbstract = detail.articleAbstractResponse
+        if (detail.articleTitle.isNotBlank()) {
+            articleTitle.postValue(detail.articleTitle)
+        }
+        if (detail.postList.isNotEmpty()) {
+            // posts is only changed on main, it runs before resume posted once the page is fetched
+            mainHandler.post { addPage(detail.postList, type) }
+        }
+        nextPageUrl = detail.nextPageUrl
+        mFormHash = detail.fromHash
+        shouldDisplayPosts.postValue(true)
+    }
+
+    /**
+     * Show [page] alone, or after the pages shown. A new list is set each time,
+     * the one in [posts] is never changed in place.
+     */
+    @MainThread
+    private fun addPage(page: List<Post>, type: Int) {
+        val list = posts.value.orEmpty()
+        if (type == FETCH_POST_INIT || list.isEmpty()) {
+            firstPageSize = page.size
+            synchronized(pageStarts) {
+                pageStarts.clear()
+                pageStarts.add(0)
+            }
+            posts.value = page.toMutableList()
+        } else {
+            synchronized(pageStarts) {
+                pageStarts.add(list.size)
+            }
+            posts.value = (list + page).toMutableList()
+        }
+    }
+
+    // only pages read are searchable, prefetched ones are not
+    private fun index(query: String, detail: ArticleDetail) {
+        GlobalScope.launch(BackGroundPool) {
+            try {
+                SearchIndex.putThread(query, detail)
+            } catch (e: Exception) {
+                Timber.w(e)
+            }
+        }
+    }
+
+    /**
+     * Replace posts of the first page with the ones from network, so new replies and edits show up.
+     * Pages loaded after it are kept.
+     */
+    private suspend fun refreshFirstPage(query: String) {
+        val detail = try {
+            ArticlesRemoteDataSource.loadArticleDetail(query)
+        } catch (e: CancellationException) {
+            throw e
+        } catch (e: Exception) {
+            // the stored page stays on screen
+            Timber.w(e)
+            return
+        }
+        articleAbstract = detail.articleAbstractResponse ?: articleAbstract
+        mFormHash = detail.fromHash ?: mFormHash
+        // after the stored page posted by showDetail, and after any page appended meanwhile
+        mainHandler.post { replaceFirstPage(detail) }
+    }
+
+    @MainThread
+    private fun replaceFirstPage(detail: ArticleDetail) {
+        if (detail.postList.isEmpty()) {
+            return
+        }
+        val list = posts.value.orEmpty()
+        val shown = list.take(firstPageSize)
+        if (shown.size == detail.postList.size
+            && shown.zip(detail.postList).all { (a, b) -> a.content == b.content }
+        ) {
+            return
+        }
+        val laterPages = list.drop(shown.size)
+        if (laterPages.isEmpty()) {
+            nextPageUrl = detail.nextPageUrl
+        }
+        shiftLaterPages(detail.postList.size - firstPageSize)
+        firstPageSize = detail.postList.size
+        posts.value = (detail.postList + laterPages).toMutableList()
+    }
+
+    /**
+     * @return page and post where the thread was left, null if it's not to be resumed.
+     * The thread always opens at its first page, so its first post stays on top,
+     * later pages are loaded one by one up to where it was left, see [resume].
+     */
+    private fun resumeTargetOf(state: ReadStateStore.ReadState): Pair<Int, Int>? {
+        if (firstPage != 1 || (state.page <= 1 && state.post == 0)) {
+            return null
+        }
+        // too far to load page by page, read from the start
+        if (state.page - firstPage > MAX_RESUME_PAGES) {
+            return null
+        }
+        return state.page.coerceAtLeast(1) to state.post
+    }
+
+    /**
+     * Load the next page until the one where the thread was left is in posts, then scroll to it
+     */
+    @MainThread
+    private fun resume() {
+        val (page, post) = resumeTarget ?: return
+        val start = synchronized(pageStarts) { pageStarts.getOrNull(page - firstPage) }
+        val size = posts.value?.size ?: 0
+        when {
+            start != null && size > 0 -> {
+                resumeTarget = null
+                resumePosition.value = (start + post).coerceAtMost(size - 1)
+            }
+            hasNextPage() && !isLoadingMore -> fetchArticlePost(FETCH_POST_MORE) {}
+            // the page is gone, stay where the posts loaded end
+            !hasNextPage() -> resumeTarget = null
+        }
+    }
+
+    /**
+     * User scrolls by themselves, don't jump away once the rest pages are loaded
+     */
+    fun cancelResume() {
+        resumeTarget = null
+    }
+
+    /**
+     * Post at [position] is on screen, it's saved as where the thread is read up to
+     */
+    fun onPostShown(position: Int) {
+        val tid = threadId ?: return
+        // first page is shown before the page it's resumed to
+        if (resumeTarget != null) {
+            return
+        }
+        val (page, post) = synchronized(pageStarts) {
+            val index = pageStarts.indexOfLast { it <= position }
+            if (index < 0) {
+                return
+            }
+            firstPage + index to position - pageStarts[index]
+        }
+        GlobalScope.launch(BackGroundPool) {
+            ReadStateStore.markRead(tid, page, post)
+        }
+    }
+
+    private fun shiftLaterPages(delta: Int) {
+        synchronized(pageStarts) {
+            for (i in 1 until pageStarts.size) {
+                pageStarts[i] += delta
+            }
         }
     }
 
+    override fun hasNextPage(): Boolean {
+        return !nextPageUrl.isNullOrEmpty()
+    }
+
+    override fun archivedImage(url: String): Bitmap? {
+        return archive?.image(url)
+    }
+
     override fun replyAdd(url: String) {
         if (TextUtils.isEmpty(url)) {
             isLoading.value = false
@@ -175,10 +426,62 @@ class ArticleViewModel : ViewModel(), ArticleAdapterListener {
         }
     }
 
+    /**
+     * Download all pages and images of the thread, so it can be read without network
+     */
+    fun downloadForOffline() {
+        val url = mUrl ?: return
+        if (isDownloading) {
+            showMessage(R.string.offline_download_running)
+            return
+        }
+        isDownloading = true
+        showMessage(R.string.offline_download_started)
+        GlobalScope.launch(IOPool) {
+            try {
+                val result = ThreadDownloader.download(url)
+                archive = ThreadArchive.open(url)
+                showMessage(
+                    LCGApp.context.getString(
+                        R.string.offline_download_finished,
+                        result.pages,
+                        result.images
+                    )
+                )
+            } catch (e: Exception) {
+                Timber.e(e)
+                showMessage(R.string.offline_download_failed)
+            } finally {
+                isDownloading = false
+            }
+        }
+    }
+
+    /**
+     * Delete the downloaded copy of the thread, it's read from network only from now on
+     */
+    fun deleteOffline() {
+        val url = mUrl ?: return
+        if (isDownloading) {
+            showMessage(R.string.offline_download_running)
+            return
+        }
+        archive = null
+        GlobalScope.launch(IOPool) {
+            if (ThreadArchive.delete(url)) {
+                showMessage(R.string.offline_deleted)
+            } else {
+                showMessage(R.string.offline_not_downloaded)
+            }
+        }
+    }
+
+    @MainThread
     fun addPostToTop(post: Post) {
         posts.value?.let {
-            it.add(1, post)
-            posts.value = it
+            firstPageSize++
+            shiftLaterPages(1)
+            posts.value = it.toMutableList().apply { add(1, post) }
         }
     }
 
@@ -202,4 +505,8 @@ class ArticleViewModel : ViewModel(), ArticleAdapterListener {
             null
         }
     }
-}
\ No newline at end of file
+
+    companion object {
+        private const val MAX_RESUME_PAGES = 20
+    }
+}
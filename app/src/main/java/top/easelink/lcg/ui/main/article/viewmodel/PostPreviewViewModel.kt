@@ -2,10 +2,9 @@ package top.easelink.lcg.ui.main.article.viewmodel
 
 import androidx.lifecycle.MutableLiveData
 import androidx.lifecycle.ViewModel
-import kotlinx.coroutines.GlobalScope
-import kotlinx.coroutines.launch
-import top.easelink.framework.threadpool.IOPool
+import kotlinx.coroutines.CancellationException
 import top.easelink.lcg.R
+import top.easelink.lcg.network.launchRequest
 import top.easelink.lcg.ui.main.model.BlockException
 import top.easelink.lcg.ui.main.source.remote.ArticlesRemoteDataSource
 
@@ -19,7 +18,7 @@ class PostPreviewViewModel : ViewModel() {
 
     fun initUrl(query: String) {
         loadingResult.value = R.string.preview_loading
-        GlobalScope.launch(IOPool) {
+        launchRequest {
             try {
                 val post = ArticlesRemoteDataSource.getPostPreview(query)
                 if (post != null) {
@@ -36,6 +35,8 @@ class PostPreviewViewModel : ViewModel() {
                 }
             } catch (block: BlockException) {
                 loadingResult.postValue(R.string.preview_fail_info_post_deleted)
+            } catch (e: CancellationException) {
+                throw e
             } catch (e: Exception) {
                 loadingResult.postValue(R.string.preview_fail_info)
             }
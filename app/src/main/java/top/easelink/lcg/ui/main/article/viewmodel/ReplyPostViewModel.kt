@@ -9,6 +9,7 @@ import org.jsoup.Jsoup
 import timber.log.Timber
 import top.easelink.framework.threadpool.IOPool
 import top.easelink.lcg.network.JsoupClient
+import top.easelink.lcg.network.PageCache
 import top.easelink.lcg.utils.WebsiteConstant.CHECK_RULE_URL
 import top.easelink.lcg.utils.WebsiteConstant.SERVER_BASE_URL
 import top.easelink.lcg.utils.getCookies
@@ -83,7 +84,11 @@ class ReplyPostViewModel : ViewModel() {
                             .method(Connection.Method.POST)
                             .execute()
                         setCookies(response.cookies())
-                        callback.invoke(response.statusCode() in 200 until 300)
+                        val success = response.statusCode() in 200 until 300
+                        if (success) {
+                            queryMap["tid"]?.toLongOrNull()?.let { PageCache.onThreadChanged(it) }
+                        }
+                        callback.invoke(success)
                     } else {
                         Timber.e(response.body())
                     }
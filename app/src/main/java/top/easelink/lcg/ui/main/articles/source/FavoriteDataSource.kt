@@ -1,23 +1,82 @@
 package top.easelink.lcg.ui.main.articles.source
 
 import androidx.annotation.WorkerThread
+import kotlinx.coroutines.async
+import kotlinx.coroutines.awaitAll
+import kotlinx.coroutines.coroutineScope
 import org.jsoup.nodes.Document
+import top.easelink.framework.threadpool.IOPool
 import top.easelink.lcg.network.JsoupClient
 import top.easelink.lcg.ui.main.source.model.ArticleEntity
 import top.easelink.lcg.utils.WebsiteConstant.GET_FAVORITE_QUERY
 import top.easelink.lcg.utils.toTimeStamp
 
 object FavoriteDataSource {
+
+    private val NUMBER = Regex("\\d+")
+
+    /**
+     * Favorites are listed from the newest, pages are walked until a whole page worth of entries
+     * in a row are in [knownIds]. A single known entry doesn't end it, older favorites which
+     * weren't synced may still follow it, e.g. after an earlier sync failed half way.
+     *
+     * @return favorites which are not known yet
+     */
     @WorkerThread
-    fun getAllRemoteFavorites(): List<ArticleEntity> {
+    fun getNewRemoteFavorites(knownIds: Set<String>): List<ArticleEntity> {
         val favorites = mutableListOf<ArticleEntity>()
+        var knownInARow = 0
         var nextPageUrl: String? = GET_FAVORITE_QUERY
         while (nextPageUrl != null) {
             val doc = JsoupClient.sendGetRequestWithQuery(nextPageUrl)
-            favorites.addAll(parseFavorites(doc))
+            val page = parseFavorites(doc)
+            page.forEach {
+                if (it.id in knownIds) {
+                    knownInARow++
+                } else {
+                    favorites.add(it)
+                    knownInARow = 0
+                }
+            }
+            if (page.isEmpty() || knownInARow >= page.size) {
+                break
+            }
             nextPageUrl = doc.selectFirst("a.nxt")?.attr("href")
         }
-        return favorites
+        return favorites.distinctBy { it.id }
+    }
+
+    /**
+     * Once the first page tells the page count, the rest pages are fetched concurrently.
+     * Fails if any page fails, so a partial list is never taken as the whole one.
+     */
+    suspend fun getAllRemoteFavorites(): List<ArticleEntity> = coroutineScope {
+        val firstPage = JsoupClient.sendGetRequestWithQuery(GET_FAVORITE_QUERY)
+        val rest = (2..parsePageCount(firstPage))
+            .map { page ->
+                async(IOPool) {
+                    parseFavorites(JsoupClient.sendGetRequestWithQuery("$GET_FAVORITE_QUERY&page=$page"))
+                }
+            }
+            .awaitAll()
+        // entries may shift between pages while they're fetched
+        (parseFavorites(firstPage) + rest.flatten()).distinctBy { it.id }
+    }
+
+    private fun parsePageCount(doc: Document): Int {
+        val pager = doc.selectFirst("div.pg") ?: return 1
+        // ex: <span title="共 23 页"> / 23 页</span>
+        pager.selectFirst("label span")?.attr("title")?.let {
+            NUMBER.find(it)?.value?.toIntOrNull()
+        }?.let {
+            return it
+        }
+        // ex: <a class="last">... 23</a>
+        return pager
+            .select("a")
+            .mapNotNull { NUMBER.find(it.text())?.value?.toIntOrNull() }
+            .maxOrNull()
+            ?: 1
     }
 
     private fun parseFavorites(doc: Document): List<ArticleEntity> {
@@ -5,11 +5,16 @@ import android.view.View
 import android.view.ViewGroup
 import androidx.core.content.ContextCompat
 import androidx.fragment.app.FragmentManager
+import androidx.recyclerview.widget.LinearLayoutManager
 import androidx.recyclerview.widget.RecyclerView
 import kotlinx.android.synthetic.main.item_article_view.view.*
 import kotlinx.android.synthetic.main.item_load_more_view.view.*
+import kotlinx.coroutines.GlobalScope
+import kotlinx.coroutines.launch
 import org.greenrobot.eventbus.EventBus
 import top.easelink.framework.base.BaseViewHolder
+import top.easelink.framework.recyclerview.LoadMoreController
+import top.easelink.framework.threadpool.BackGroundPool
 import top.easelink.lcg.R
 import top.easelink.lcg.databinding.ItemArticleEmptyViewBinding
 import top.easelink.lcg.mta.EVENT_OPEN_PREVIEW
@@ -20,7 +25,10 @@ import top.easelink.lcg.ui.main.articles.viewmodel.ArticleEmptyItemViewModel
 import top.easelink.lcg.ui.main.articles.viewmodel.ArticleEmptyItemViewModel.ArticleEmptyItemViewModelListener
 import top.easelink.lcg.ui.main.articles.viewmodel.ArticleFetcher
 import top.easelink.lcg.ui.main.model.OpenArticleEvent
+import top.easelink.lcg.ui.main.source.local.ReadStateStore
 import top.easelink.lcg.ui.main.source.model.Article
+import top.easelink.lcg.ui.main.source.remote.ThreadPrefetcher
+import top.easelink.lcg.utils.threadIdOf
 import java.lang.ref.WeakReference
 
 class ArticlesAdapter(
@@ -29,6 +37,67 @@ class ArticlesAdapter(
 
     private var fragmentManager: WeakReference<FragmentManager>? = null
     private val mArticleList: MutableList<Article> = mutableListOf()
+    private var recyclerView: RecyclerView? = null
+
+    // next page is requested before the footer shows up
+    val loadMoreController = LoadMoreController(
+        hasMore = { mArticleList.isNotEmpty() }
+    ) { done ->
+        articleFetcher.fetchArticles(ArticleFetcher.FetchType.FETCH_MORE, done)
+    }.apply {
+        // footer may be moving while items are added, look for it among children
+        onLoadingChanged = { loading ->
+            recyclerView?.let {
+                for (i in 0 until it.childCount) {
+                    (it.getChildViewHolder(it.getChildAt(i)) as? LoadMoreViewHolder)?.showLoading(loading)
+                }
+            }
+        }
+    }
+
+    // threads on screen are likely to be opened, prefetch them once scrolling stops
+    private val prefetchListener = object : RecyclerView.OnScrollListener() {
+        override fun onScrollStateChanged(recyclerView: RecyclerView, newState: Int) {
+            if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+                prefetchVisibleThreads(recyclerView)
+            }
+        }
+
+        override fun onScrolled(recyclerView: RecyclerView, dx: Int, dy: Int) {
+            // list is laid out without scrolling, ex: first page is shown
+            if (dx == 0 && dy == 0) {
+                prefetchVisibleThreads(recyclerView)
+            }
+        }
+    }
+
+    override fun onAttachedToRecyclerView(recyclerView: RecyclerView) {
+        super.onAttachedToRecyclerView(recyclerView)
+        this.recyclerView = recyclerView
+        loadMoreController.attach(recyclerView)
+        recyclerView.addOnScrollListener(prefetchListener)
+    }
+
+    override fun onDetachedFromRecyclerView(recyclerView: RecyclerView) {
+        loadMoreController.detach()
+        recyclerView.removeOnScrollListener(prefetchListener)
+        this.recyclerView = null
+        super.onDetachedFromRecyclerView(recyclerView)
+    }
+
+    private fun prefetchVisibleThreads(recyclerView: RecyclerView) {
+        val layoutManager = recyclerView.layoutManager as? LinearLayoutManager ?: return
+        val first = layoutManager.findFirstVisibleItemPosition()
+        if (first == RecyclerView.NO_POSITION || mArticleList.isEmpty()) {
+            return
+        }
+        val last = (layoutManager.findLastVisibleItemPosition() + PREFETCH_AHEAD)
+            .coerceAtMost(mArticleList.size - 1)
+        if (first > last) {
+            return
+        }
+        ThreadPrefetcher.prefetch(mArticleList.subList(first, last + 1).map { it.url })
+    }
 
     override fun getItemCount(): Int {
         return when {
@@ -113,8 +182,13 @@ class ArticlesAdapter(
 
     inner class ArticleViewHolder internal constructor(private val view: View) :
         BaseViewHolder(view) {
+
+        private val titleColors = view.title_text_view.textColors
+
         override fun onBind(position: Int) {
             val article = mArticleList[position]
+            val tid = threadIdOf(article.url)
+            val readState = tid?.let { ReadStateStore.peek(it) }
             view.layout.apply {
                 setOnLongClickListener {
                     sendEvent(EVENT_OPEN_PREVIEW)
@@ -125,14 +199,37 @@ class ArticlesAdapter(
                     true
                 }
                 setOnClickListener {
+                    tid?.let {
+                        GlobalScope.launch(BackGroundPool) {
+                            ReadStateStore.markOpened(it, article.reply)
+                            view.post {
+                                adapterPosition
+                                    .takeIf { p -> p != RecyclerView.NO_POSITION }
+                                    ?.let { p -> notifyItemChanged(p) }
+                            }
+                        }
+                    }
                     EventBus.getDefault().post(OpenArticleEvent(article.url))
                 }
             }
             view.apply {
                 title_text_view.text = article.title
+                if (readState != null) {
+                    title_text_view.setTextColor(ContextCompat.getColor(context, R.color.gray))
+                } else {
+                    title_text_view.setTextColor(titleColors)
+                }
                 author_text_view.text = article.author
                 date_text_view.text = article.date
-                reply_and_view.text = article.let { "${it.reply} / ${it.view}" }
+                val newReplies = readState
+                    ?.takeIf { it.hasReplies }
+                    ?.let { article.reply - it.replies }
+                    ?: 0
+                reply_and_view.text = if (newReplies > 0) {
+                    context.getString(R.string.reply_and_view_new, article.reply, article.view, newReplies)
+                } else {
+                    article.let { "${it.reply} / ${it.view}" }
+                }
                 origin.text = article.origin
                 if (article.isRecommended) {
                     recommend_flag.visibility = View.VISIBLE
@@ -193,12 +290,12 @@ class ArticlesAdapter(
     inner class LoadMoreViewHolder internal constructor(val view: View) :
         BaseViewHolder(view) {
         override fun onBind(position: Int) {
-            view.loading.visibility = View.VISIBLE
-            articleFetcher.fetchArticles(ArticleFetcher.FetchType.FETCH_MORE) {
-                view.post {
-                    view.loading.visibility = View.GONE
-                }
-            }
+            loadMoreController.loadMore()
+            showLoading(loadMoreController.isLoading)
+        }
+
+        fun showLoading(loading: Boolean) {
+            view.loading.visibility = if (loading) View.VISIBLE else View.GONE
         }
     }
 
@@ -206,6 +303,8 @@ class ArticlesAdapter(
         private const val VIEW_TYPE_EMPTY = 0
         private const val VIEW_TYPE_NORMAL = 1
         private const val VIEW_TYPE_LOAD_MORE = 2
+        // near-visible items below the screen which are prefetched as well
+        private const val PREFETCH_AHEAD = 2
     }
 
 }
\ No newline at end of file
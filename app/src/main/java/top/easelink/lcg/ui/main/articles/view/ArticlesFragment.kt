@@ -85,6 +85,7 @@ class ArticlesFragment : BaseFragment<FragmentArticlesBinding, ArticlesViewModel
             // Set the scrolling view in the custom SwipeRefreshLayout.
             setScrollUpChild(viewDataBinding.recyclerView)
             setOnRefreshListener {
+                (viewDataBinding.recyclerView.adapter as? ArticlesAdapter)?.loadMoreController?.reset()
                 viewModel.fetchArticles(ArticleFetcher.FetchType.FETCH_INIT) {}
             }
         }
@@ -14,13 +14,13 @@ import top.easelink.lcg.R
 import top.easelink.lcg.ui.main.articles.viewmodel.ArticleFetcher
 import top.easelink.lcg.ui.main.articles.viewmodel.FavoriteArticlesViewModel
 import top.easelink.lcg.ui.main.model.OpenArticleEvent
-import top.easelink.lcg.ui.main.source.model.ArticleEntity
+import top.easelink.lcg.ui.main.source.model.FavoriteArticle
 import top.easelink.lcg.utils.getDateFrom
 
 
 class FavoriteArticlesAdapter(private var favoriteArticlesViewModel: FavoriteArticlesViewModel) :
     RecyclerView.Adapter<BaseViewHolder>(), onMoveAndSwipedListener {
-    private val mArticleEntities: MutableList<ArticleEntity> = mutableListOf()
+    private val mArticleEntities: MutableList<FavoriteArticle> = mutableListOf()
 
     override fun getItemCount(): Int {
         return if (mArticleEntities.isEmpty()) {
@@ -67,7 +67,7 @@ class FavoriteArticlesAdapter(private var favoriteArticlesViewModel: FavoriteArt
         }
     }
 
-    fun addItems(articleEntityList: List<ArticleEntity>) {
+    fun addItems(articleEntityList: List<FavoriteArticle>) {
         mArticleEntities.addAll(articleEntityList)
         notifyDataSetChanged()
     }
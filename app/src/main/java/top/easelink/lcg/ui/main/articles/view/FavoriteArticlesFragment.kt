@@ -74,6 +74,7 @@ class FavoriteArticlesFragment :
                 when (it.itemId) {
                     R.id.action_remove_all -> viewModel.removeAllFavorites()
                     R.id.action_sync_my_favorites -> viewModel.syncFavorites()
+                    R.id.action_resync_all_favorites -> viewModel.syncFavorites(fullSync = true)
                     R.id.action_manage_favorites -> WebViewActivity.startWebViewWith(
                         SERVER_BASE_URL + GET_FAVORITE_QUERY,
                         context
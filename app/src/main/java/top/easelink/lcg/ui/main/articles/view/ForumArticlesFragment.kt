@@ -68,6 +68,7 @@ class ForumArticlesFragment : BaseFragment<FragmentForumArticlesBinding, ForumAr
                         ?.get(pos)
                         ?.threadUrl
                         ?.let {
+                            resetLoadMore()
                             viewModel.initUrlAndFetch(
                                 url = it,
                                 fetchType = ArticleFetcher.FetchType.FETCH_INIT,
@@ -115,6 +116,7 @@ class ForumArticlesFragment : BaseFragment<FragmentForumArticlesBinding, ForumAr
             addOnTabSelectedListener(object : OnTabSelectedListener {
                 override fun onTabSelected(tab: TabLayout.Tab) {
                     sendEvent(CHANGE_THREAD)
+                    resetLoadMore()
                     viewModel.initUrlAndFetch(
                         url = forumThreadList[tab.position].threadUrl,
                         fetchType = ArticleFetcher.FetchType.FETCH_INIT
@@ -153,6 +155,7 @@ class ForumArticlesFragment : BaseFragment<FragmentForumArticlesBinding, ForumAr
                 }
             )
             setOnRefreshListener {
+                resetLoadMore()
                 viewModel.fetchArticles(ArticleFetcher.FetchType.FETCH_INIT) {}
             }
         }
@@ -171,6 +174,10 @@ class ForumArticlesFragment : BaseFragment<FragmentForumArticlesBinding, ForumAr
         })
     }
 
+    private fun resetLoadMore() {
+        (viewDataBinding.recyclerView.adapter as? ArticlesAdapter)?.loadMoreController?.reset()
+    }
+
     companion object {
         private const val ARG_PARAM = "url"
         private const val ARG_TITLE = "title"
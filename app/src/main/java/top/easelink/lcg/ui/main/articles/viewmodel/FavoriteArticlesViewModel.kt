@@ -1,5 +1,6 @@
 package top.easelink.lcg.ui.main.articles.viewmodel
 
+import androidx.annotation.WorkerThread
 import androidx.lifecycle.MutableLiveData
 import androidx.lifecycle.ViewModel
 import kotlinx.coroutines.GlobalScope
@@ -9,46 +10,71 @@ import top.easelink.framework.threadpool.CalcPool
 import top.easelink.framework.threadpool.IOPool
 import top.easelink.lcg.R
 import top.easelink.lcg.ui.main.articles.source.FavoriteDataSource.getAllRemoteFavorites
+import top.easelink.lcg.ui.main.articles.source.FavoriteDataSource.getNewRemoteFavorites
 import top.easelink.lcg.ui.main.source.local.ArticlesLocalDataSource
-import top.easelink.lcg.ui.main.source.model.ArticleEntity
+import top.easelink.lcg.ui.main.source.model.FavoriteArticle
 import top.easelink.lcg.utils.showMessage
 
 class FavoriteArticlesViewModel : ViewModel(), ArticleFetcher {
-    val articles = MutableLiveData<List<ArticleEntity>>()
+    val articles = MutableLiveData<List<FavoriteArticle>>()
     val isLoading = MutableLiveData<Boolean>()
-    private var mCurrentPage = 0
 
+    // favorites shown so far, pages are loaded after the last one of them
+    private val loaded = mutableListOf<FavoriteArticle>()
+    @Volatile
+    private var hasMore = true
 
     override fun fetchArticles(fetchType: ArticleFetcher.FetchType, callback: (Boolean) -> Unit) {
-        when (fetchType) {
-            ArticleFetcher.FetchType.FETCH_MORE -> {
-                callback.invoke(false)
-                // TODO add pagination
-                return
-            }
-            ArticleFetcher.FetchType.FETCH_INIT -> rewindPageNum()
+        val isInit = fetchType == ArticleFetcher.FetchType.FETCH_INIT
+        if (!isInit && !hasMore) {
+            callback.invoke(false)
+            return
+        }
+        if (isInit) {
+            isLoading.value = true
         }
-        isLoading.value = true
         GlobalScope.launch(CalcPool) {
             try {
-                ArticlesLocalDataSource.getAllFavoriteArticles().let {
-                    if (it.isNotEmpty().also(callback)) {
-                        articles.postValue(it)
-                    }
-                }
+                callback.invoke(loadPage(fromStart = isInit))
             } catch (e: Exception) {
                 Timber.e(e)
+                callback.invoke(false)
             } finally {
-                isLoading.postValue(false)
+                if (isInit) {
+                    isLoading.postValue(false)
+                }
             }
         }
     }
 
+    /**
+     * @return whether any favorite is loaded
+     */
+    @WorkerThread
+    private fun loadPage(fromStart: Boolean): Boolean {
+        // pages are only appended in order, a page loaded by an earlier request is not loaded twice
+        synchronized(loaded) {
+            val after = if (fromStart) null else loaded.lastOrNull()
+            val page = ArticlesLocalDataSource.getFavoriteArticles(after, PAGE_SIZE)
+            if (fromStart) {
+                loaded.clear()
+            }
+            loaded.addAll(page)
+            hasMore = page.size == PAGE_SIZE
+            articles.postValue(loaded.toList())
+            return page.isNotEmpty()
+        }
+    }
+
     fun removeAllFavorites() {
         isLoading.value = true
         GlobalScope.launch(CalcPool) {
             try {
                 if (ArticlesLocalDataSource.delAllArticlesFromFavorite()) {
+                    synchronized(loaded) {
+                        loaded.clear()
+                        hasMore = false
+                    }
                     articles.postValue(emptyList())
                     showMessage(R.string.remove_all_favorites_successfully)
                 } else {
@@ -63,13 +89,32 @@ class FavoriteArticlesViewModel : ViewModel(), ArticleFetcher {
         }
     }
 
-    fun syncFavorites() {
+    /**
+     * @param fullSync false to fetch only favorites newer than local ones,
+     * true to fetch all of them and drop the ones removed online
+     */
+    fun syncFavorites(fullSync: Boolean = false) {
         isLoading.value = true
         GlobalScope.launch(IOPool) {
             try {
-                val articleEntities = getAllRemoteFavorites()
-                if (ArticlesLocalDataSource.addAllArticleToFavorite(articleEntities)) {
-                    articles.postValue(ArticlesLocalDataSource.getAllFavoriteArticles())
+                val syncedIds = ArticlesLocalDataSource.getSyncedFavoriteIds()
+                val changed = if (!fullSync && syncedIds.isNotEmpty()) {
+                    val newFavorites = getNewRemoteFavorites(
+                        ArticlesLocalDataSource.getFavoriteIds().toHashSet()
+                    )
+                    ArticlesLocalDataSource.applyFavoritesDiff(newFavorites, emptyList())
+                } else {
+                    val remoteFavorites = getAllRemoteFavorites()
+                    val localIds = ArticlesLocalDataSource.getFavoriteIds().toHashSet()
+                    val remoteIds = remoteFavorites.mapTo(HashSet()) { it.id }
+                    ArticlesLocalDataSource.applyFavoritesDiff(
+                        remoteFavorites.filter { it.id !in localIds },
+                        // favorites added locally only are kept
+                        syncedIds.filter { it !in remoteIds }
+                    )
+                }
+                if (changed) {
+                    loadPage(fromStart = true)
                 }
             } catch (e: Exception) {
                 Timber.e(e)
@@ -80,11 +125,7 @@ class FavoriteArticlesViewModel : ViewModel(), ArticleFetcher {
         }
     }
 
-    private fun rewindPageNum() {
-        mCurrentPage = 0
-    }
-
-    private fun nextPage() {
-        mCurrentPage++
+    companion object {
+        private const val PAGE_SIZE = 50
     }
 }
\ No newline at end of file
@@ -3,11 +3,10 @@ package top.easelink.lcg.ui.main.articles.viewmodel
 import androidx.annotation.MainThread
 import androidx.lifecycle.MutableLiveData
 import androidx.lifecycle.ViewModel
-import kotlinx.coroutines.GlobalScope
-import kotlinx.coroutines.launch
+import kotlinx.coroutines.CancellationException
 import timber.log.Timber
-import top.easelink.framework.threadpool.IOPool
 import top.easelink.lcg.R
+import top.easelink.lcg.network.launchRequest
 import top.easelink.lcg.ui.main.model.LoginRequiredException
 import top.easelink.lcg.ui.main.source.model.Article
 import top.easelink.lcg.ui.main.source.model.ForumThread
@@ -68,7 +67,7 @@ class ForumArticlesViewModel : ViewModel(), ArticleFetcher {
 
     override fun fetchArticles(fetchType: ArticleFetcher.FetchType, callback: (Boolean) -> Unit) {
         isLoading.value = true
-        GlobalScope.launch(IOPool) {
+        launchRequest {
             try {
                 val query = composeUrlByRequestType(fetchType)
                 val forumPage = getForumArticles(
@@ -102,11 +101,16 @@ class ForumArticlesViewModel : ViewModel(), ArticleFetcher {
                         }
                         isTabSet = true
                     }
-
+                } else {
+                    callback(false)
                 }
             } catch (e: LoginRequiredException) {
+                callback(false)
                 showMessage(R.string.login_required_error)
+            } catch (e: CancellationException) {
+                throw e
             } catch (e: Exception) {
+                callback(false)
                 showMessage(R.string.error)
             } finally {
                 isLoading.postValue(false)
@@ -4,10 +4,9 @@ import android.content.Context
 import androidx.annotation.MainThread
 import androidx.lifecycle.MutableLiveData
 import androidx.lifecycle.ViewModel
-import kotlinx.coroutines.GlobalScope
-import kotlinx.coroutines.launch
-import top.easelink.framework.threadpool.IOPool
+import kotlinx.coroutines.CancellationException
 import top.easelink.lcg.R
+import top.easelink.lcg.network.launchRequest
 import top.easelink.lcg.ui.main.discover.model.DiscoverModel
 import top.easelink.lcg.ui.main.discover.model.ForumListModel
 import top.easelink.lcg.ui.main.discover.model.ForumNavigationModel
@@ -31,7 +30,7 @@ class DiscoverViewModel : ViewModel() {
                 }
             }
         aggregationModels.value = mutableListOf(ForumListModel(list))
-        GlobalScope.launch(IOPool) {
+        launchRequest {
             runCatching {
                 fetchRank(RankType.HEAT, DateType.TODAY).let { ranks ->
                     aggregationModels.value?.let {
@@ -41,6 +40,7 @@ class DiscoverViewModel : ViewModel() {
                 }
             }.getOrElse {
                 when (it) {
+                    is CancellationException -> throw it
                     is SocketTimeoutException -> showMessage(R.string.network_error)
                     else -> showMessage(R.string.error)
                 }
@@ -11,6 +11,7 @@ import coil.transform.RoundedCornersTransformation
 import kotlinx.android.synthetic.main.item_follow_view.view.*
 import kotlinx.android.synthetic.main.item_load_more_view.view.*
 import top.easelink.framework.base.BaseViewHolder
+import top.easelink.framework.recyclerview.LoadMoreController
 import top.easelink.framework.utils.dpToPx
 import top.easelink.lcg.R
 import top.easelink.lcg.ui.main.follow.model.FollowInfo
@@ -25,6 +26,24 @@ class FollowListAdapter(
     private val mFollowing: MutableList<FollowInfo> = mutableListOf()
     var nextPageUrl: String? = null
 
+    private val loadMoreController = LoadMoreController(
+        hasMore = { mFollowing.isNotEmpty() && nextPageUrl != null }
+    ) { done ->
+        nextPageUrl?.let {
+            followListViewModel.fetchData(it, true, done)
+        } ?: done(false)
+    }
+
+    override fun onAttachedToRecyclerView(recyclerView: RecyclerView) {
+        super.onAttachedToRecyclerView(recyclerView)
+        loadMoreController.attach(recyclerView)
+    }
+
+    override fun onDetachedFromRecyclerView(recyclerView: RecyclerView) {
+        loadMoreController.detach()
+        super.onDetachedFromRecyclerView(recyclerView)
+    }
+
     override fun getItemCount(): Int {
         return if (mFollowing.isEmpty()) {
             1
@@ -137,7 +156,7 @@ class FollowListAdapter(
         override fun onBind(position: Int) {
             nextPageUrl?.let {
                 followListViewModel.isLoadingForLoadMore.observe(lifecycleOwner, observer)
-                followListViewModel.fetchData(it, true)
+                loadMoreController.loadMore()
             } ?: run {
                 view.loading.apply {
                     cancelAnimation()
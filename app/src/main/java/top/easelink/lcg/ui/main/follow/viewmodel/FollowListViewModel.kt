@@ -2,13 +2,11 @@ package top.easelink.lcg.ui.main.follow.viewmodel
 
 import androidx.lifecycle.MutableLiveData
 import androidx.lifecycle.ViewModel
-import kotlinx.coroutines.GlobalScope
-import kotlinx.coroutines.launch
-import org.jsoup.nodes.Document
+import kotlinx.coroutines.CancellationException
 import timber.log.Timber
-import top.easelink.framework.threadpool.IOPool
 import top.easelink.lcg.network.JsoupClient
-import top.easelink.lcg.ui.main.follow.model.FollowInfo
+import top.easelink.lcg.network.launchRequest
+import top.easelink.lcg.parser.parseFollows
 import top.easelink.lcg.ui.main.follow.model.FollowResult
 
 class FollowListViewModel : ViewModel() {
@@ -17,17 +15,21 @@ class FollowListViewModel : ViewModel() {
     val isLoading = MutableLiveData<Boolean>()
     val isLoadingForLoadMore = MutableLiveData<Boolean>()
 
-    fun fetchData(url: String, isLoadMore: Boolean = false) {
+    fun fetchData(url: String, isLoadMore: Boolean = false, callback: (Boolean) -> Unit = {}) {
         if (isLoadMore) {
             isLoadingForLoadMore.value = true
         } else {
             isLoading.value = true
         }
-        GlobalScope.launch(IOPool) {
+        launchRequest {
             try {
-                parseFollows(JsoupClient.sendGetRequestWithQuery(url))
+                follows.postValue(parseFollows(JsoupClient.sendGetRequestWithQuery(url)))
+                callback(true)
+            } catch (e: CancellationException) {
+                throw e
             } catch (e: Exception) {
                 Timber.e(e)
+                callback(false)
             }
             if (isLoadMore) {
                 isLoadingForLoadMore.postValue(false)
@@ -36,35 +38,4 @@ class FollowListViewModel : ViewModel() {
             }
         }
     }
-
-    private fun parseFollows(doc: Document) {
-        doc.apply {
-            val followInfos = select("li.cl").map {
-                val avatarUrl = it.selectFirst("img")?.attr("src").orEmpty()
-                val username = it.getElementById("edit_avt")?.attr("title").orEmpty()
-                val lastAction = it.selectFirst("p").text()
-                val url = it.selectFirst("a[id^=a_followmod]")?.text().orEmpty()
-                var following: Int = 0
-                var follower: Int = 0
-                it.select("strong.xi2").let { e ->
-                    if (e.size == 2) {
-                        follower = e[0].text().toInt()
-                        following = e[1].text().toInt()
-                    }
-                }
-                FollowInfo(
-                    avatar = avatarUrl,
-                    lastAction = lastAction,
-                    username = username,
-                    followerNum = follower,
-                    followingNum = following,
-                    followOrUnFollowUrl = url
-                )
-            }
-            val nextPageUrl = selectFirst("a.nxt")?.attr("href")
-            follows.postValue(FollowResult(followInfos, nextPageUrl))
-        }
-
-    }
-
-}
\ No newline at end of file
+}
@@ -2,12 +2,12 @@ package top.easelink.lcg.ui.main.follow.viewmodel
 
 import androidx.lifecycle.MutableLiveData
 import androidx.lifecycle.ViewModel
-import kotlinx.coroutines.GlobalScope
-import kotlinx.coroutines.launch
-import org.jsoup.Jsoup
+import kotlinx.coroutines.CancellationException
+import org.jsoup.nodes.Document
 import timber.log.Timber
-import top.easelink.framework.threadpool.IOPool
 import top.easelink.lcg.network.JsoupClient
+import top.easelink.lcg.network.launchRequest
+import top.easelink.lcg.parser.parseFeeds
 import top.easelink.lcg.ui.main.follow.model.FeedInfo
 import top.easelink.lcg.utils.WebsiteConstant.FOLLOW_FEED_QUERY
 
@@ -21,9 +21,11 @@ class FollowingFeedViewModel : ViewModel() {
     fun fetchData() {
         val url = String.format(FOLLOW_FEED_QUERY, 1, 1)
         isLoading.value = true
-        GlobalScope.launch(IOPool) {
+        launchRequest {
             try {
-                parseFeeds(JsoupClient.sendAjaxRequest(url))
+                postFeeds(JsoupClient.sendAjaxRequest(url))
+            } catch (e: CancellationException) {
+                throw e
             } catch (e: Exception) {
                 Timber.e(e)
             }
@@ -34,14 +36,16 @@ class FollowingFeedViewModel : ViewModel() {
     fun fetchMore(callBack: (Boolean) -> Unit) {
         isLoadingForLoadMore.postValue(true)
         val url = String.format(FOLLOW_FEED_QUERY, pageNum, 1)
-        GlobalScope.launch(IOPool) {
+        launchRequest {
             try {
-                parseFeeds(JsoupClient.sendAjaxRequest(url))
+                postFeeds(JsoupClient.sendAjaxRequest(url))
                     .also(callBack)
                     .takeIf { it }
                     .let {
                         pageNum += 1
                     }
+            } catch (e: CancellationException) {
+                throw e
             } catch (e: Exception) {
                 Timber.e(e)
             }
@@ -49,51 +53,11 @@ class FollowingFeedViewModel : ViewModel() {
         }
     }
 
-    private fun parseFeeds(xml: String): Boolean {
-        val result = xml
-            .substring(xml.indexOf("[CDATA[", 0, true) + 7)
-            .removeSuffix("]]></root>")
-        if (result == "false") return false
-        Jsoup.parse(result)?.apply {
-            val feedInfos = select("li.cl").map {
-                val avatarUrl = it.selectFirst("a.z > img")?.attr("src").orEmpty()
-                var username = ""
-                var dateTime = ""
-                it.selectFirst("div.flw_author")?.let { author ->
-                    username = author.selectFirst("a")?.text().orEmpty()
-                    dateTime = author.selectFirst("span")?.text().orEmpty()
-                }
-                val title = it.selectFirst("h2").text()
-                val articleUrl = it.selectFirst("h2 > a").attr("href")
-                val followImages = it.getElementsByClass("flw_image")
-                    ?.select("ul > li")
-                    ?.map { li ->
-                        li.selectFirst("img").attr("src")
-                    }
-                val content = it.selectFirst(".pbm").let { pbm ->
-                    pbm.select("div.flw_image")?.remove() // 标题带的图片单独处理，此处删除
-                    pbm.select("img")?.remove() // 删除所有图片
-                    pbm.select("a.flw_readfull")?.remove() // 删除查看全文链接
-                    pbm.html()
-                }
-                // TODO add reply and relay
-                val forum = it.selectFirst("div.xg1 > a ").text()
-                val quote = it.selectFirst("div.flw_quotenote")?.text().orEmpty()
-                FeedInfo(
-                    avatar = avatarUrl,
-                    username = username,
-                    dateTime = dateTime,
-                    title = title,
-                    articleUrl = articleUrl,
-                    content = content,
-                    forum = forum,
-                    quote = quote,
-                    images = followImages
-                )
-            }
-            follows.postValue(feedInfos)
-        }
+    private fun postFeeds(doc: Document?): Boolean {
+        // no more feeds
+        doc ?: return false
+        follows.postValue(parseFeeds(doc))
         return true
     }
 
-}
\ No newline at end of file
+}
@@ -2,16 +2,16 @@ package top.easelink.lcg.ui.main.me.viewmodel
 
 import androidx.lifecycle.MutableLiveData
 import androidx.lifecycle.ViewModel
-import kotlinx.coroutines.GlobalScope
-import kotlinx.coroutines.launch
+import kotlinx.coroutines.CancellationException
 import timber.log.Timber
-import top.easelink.framework.threadpool.IOPool
 import top.easelink.lcg.R
+import top.easelink.lcg.appinit.LCGApp
 import top.easelink.lcg.network.JsoupClient
+import top.easelink.lcg.network.launchRequest
+import top.easelink.lcg.parser.parseUserInfo
 import top.easelink.lcg.spipedata.UserData
 import top.easelink.lcg.ui.main.me.model.UserInfo
 import top.easelink.lcg.ui.main.model.AntiScrapingException
-import top.easelink.lcg.ui.main.source.parseUserInfo
 import top.easelink.lcg.utils.WebsiteConstant.PROFILE_QUERY
 import top.easelink.lcg.utils.clearCookies
 import top.easelink.lcg.utils.showMessage
@@ -40,11 +40,11 @@ class MeViewModel : ViewModel() {
                     )
             }
         }
-        GlobalScope.launch(IOPool) {
+        launchRequest {
             try {
                 val userInfo = JsoupClient
                     .sendGetRequestWithQuery(PROFILE_QUERY).let {
-                        parseUserInfo(it)
+                        parseUserInfo(it, LCGApp.context.getString(R.string.login_or_register))
                     }
                 // login failed
                 if (userInfo.userName.isNullOrEmpty()) {
@@ -73,6 +73,7 @@ class MeViewModel : ViewModel() {
                 when (e) {
                     is SocketTimeoutException -> showMessage(R.string.network_error) // 网络错误，不认为是登陆异常
                     is AntiScrapingException -> showMessage(R.string.anti_scraping_error) // 针对触发反爬虫机制的处理
+                    is CancellationException -> throw e // 页面已关闭，不认为是登陆异常
                     else -> {
                         mLoginState.postValue(false)
                     }
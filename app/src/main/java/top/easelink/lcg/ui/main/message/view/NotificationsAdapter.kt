@@ -10,6 +10,7 @@ import kotlinx.android.synthetic.main.item_load_more_view.view.*
 import kotlinx.android.synthetic.main.item_notification_view.view.*
 import top.easelink.framework.base.BaseViewHolder
 import top.easelink.framework.customview.htmltextview.HtmlCoilImageGetter
+import top.easelink.framework.recyclerview.LoadMoreController
 import top.easelink.framework.utils.dpToPx
 import top.easelink.lcg.R
 import top.easelink.lcg.ui.main.message.viewmodel.NotificationViewModel
@@ -22,6 +23,22 @@ class NotificationsAdapter(
 
     private val mNotifications: MutableList<BaseNotification> = mutableListOf()
 
+    private val loadMoreController = LoadMoreController(
+        hasMore = { mNotifications.isNotEmpty() && notificationViewModel.nextPageUrl.isNotEmpty() }
+    ) { done ->
+        notificationViewModel.fetchMoreNotifications(done)
+    }
+
+    override fun onAttachedToRecyclerView(recyclerView: RecyclerView) {
+        super.onAttachedToRecyclerView(recyclerView)
+        loadMoreController.attach(recyclerView)
+    }
+
+    override fun onDetachedFromRecyclerView(recyclerView: RecyclerView) {
+        loadMoreController.detach()
+        super.onDetachedFromRecyclerView(recyclerView)
+    }
+
     override fun getItemCount(): Int {
         return if (mNotifications.isEmpty()) {
             1
@@ -113,11 +130,11 @@ class NotificationsAdapter(
     inner class LoadMoreViewHolder internal constructor(val view: View) :
         BaseViewHolder(view) {
         override fun onBind(position: Int) {
-            view.loading.visibility = View.VISIBLE
-            notificationViewModel.fetchMoreNotifications {
-                view.post {
-                    view.loading.visibility = View.GONE
-                }
+            if (notificationViewModel.nextPageUrl.isNotEmpty()) {
+                view.loading.visibility = View.VISIBLE
+                loadMoreController.loadMore()
+            } else {
+                view.loading.visibility = View.GONE
             }
         }
     }
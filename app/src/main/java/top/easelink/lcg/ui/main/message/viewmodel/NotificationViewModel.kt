@@ -2,15 +2,16 @@ package top.easelink.lcg.ui.main.message.viewmodel
 
 import androidx.lifecycle.MutableLiveData
 import androidx.lifecycle.ViewModel
-import kotlinx.coroutines.GlobalScope
-import kotlinx.coroutines.launch
+import kotlinx.coroutines.CancellationException
 import org.jsoup.nodes.Document
 import timber.log.Timber
-import top.easelink.framework.threadpool.IOPool
 import top.easelink.lcg.network.JsoupClient
-import top.easelink.lcg.ui.main.model.BaseNotification
+import top.easelink.lcg.network.Phase
+import top.easelink.lcg.network.RequestMetrics
+import top.easelink.lcg.network.RequestTag
+import top.easelink.lcg.network.launchRequest
+import top.easelink.lcg.parser.parseNotifications
 import top.easelink.lcg.ui.main.model.NotificationModel
-import top.easelink.lcg.ui.main.model.SystemNotification
 import top.easelink.lcg.utils.WebsiteConstant.NOTIFICATION_HOME_QUERY
 
 class NotificationViewModel : ViewModel() {
@@ -24,12 +25,15 @@ class NotificationViewModel : ViewModel() {
             callback.invoke(false)
             return
         }
-        GlobalScope.launch(IOPool) {
+        launchRequest {
             try {
                 JsoupClient.sendGetRequestWithQuery(nextPageUrl).let {
                     val model = parseResponse(it)
                     notifications.postValue(model)
                 }
+                callback.invoke(true)
+            } catch (e: CancellationException) {
+                throw e
             } catch (e: Exception) {
                 Timber.e(e)
                 callback.invoke(false)
@@ -38,12 +42,14 @@ class NotificationViewModel : ViewModel() {
     }
 
     fun fetchNotifications() {
-        GlobalScope.launch(IOPool) {
+        launchRequest {
             isLoading.postValue(true)
             try {
                 JsoupClient.sendGetRequestWithQuery(NOTIFICATION_HOME_QUERY).let {
                     notifications.postValue(parseResponse(it))
                 }
+            } catch (e: CancellationException) {
+                throw e
             } catch (e: Exception) {
                 Timber.e(e)
             }
@@ -51,43 +57,12 @@ class NotificationViewModel : ViewModel() {
         }
     }
 
-    private fun parseSystemResponse(doc: Document): List<SystemNotification> {
-        doc.apply {
-            val dateTime = select("span.xg1").map {
-                it.text()
-            }
-            return select("dl.cl").mapIndexed { index, element ->
-                SystemNotification(
-                    title = element.selectFirst("dd.ntc_body").html(),
-                    dateTime = dateTime[index]
-                )
-            }
-        }
-    }
-
-    private fun parseResponse(doc: Document): NotificationModel {
-        val notifications = doc.select("dl.cl").mapNotNull { element ->
-            try {
-                val ntc = element.selectFirst("dd.ntc_body")
-                ntc
-                    .getElementsByTag("a")
-                    .forEach {
-                        val href = it.attr("href")
-                        if (href.isNotEmpty()) {
-                            it.attr("href", "lcg:$href")
-                        }
-                    }
-                BaseNotification(
-                    avatar = element.selectFirst("img").attr("src"),
-                    content = ntc.html(),
-                    dateTime = element.selectFirst("span.xg1").text()
-                )
-            } catch (e: Exception) {
-                Timber.e(e)
-                null
-            }
+    private fun parseResponse(doc: Document): NotificationModel = RequestMetrics.measure(
+        RequestTag.NOTIFICATION,
+        Phase.EXTRACT
+    ) {
+        parseNotifications(doc).also {
+            nextPageUrl = it.nextPageUrl
         }
-        nextPageUrl = doc.select("a.nxt")?.attr("href").orEmpty()
-        return NotificationModel(notifications, nextPageUrl)
     }
-}
\ No newline at end of file
+}
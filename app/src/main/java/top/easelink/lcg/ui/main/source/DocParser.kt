@@ -2,23 +2,19 @@ package top.easelink.lcg.ui.main.source
 
 import androidx.annotation.WorkerThread
 import org.greenrobot.eventbus.EventBus
-import org.jsoup.Jsoup
 import org.jsoup.nodes.Document
-import org.jsoup.nodes.Element
 import timber.log.Timber
 import top.easelink.lcg.R
 import top.easelink.lcg.appinit.LCGApp
+import top.easelink.lcg.parser.parseNotificationInfo
+import top.easelink.lcg.parser.parseUserInfo
 import top.easelink.lcg.spipedata.UserData
-import top.easelink.lcg.ui.main.me.model.UserInfo
-import top.easelink.lcg.ui.main.model.AntiScrapingException
 import top.easelink.lcg.ui.main.model.NewMessageEvent
-import top.easelink.lcg.ui.main.model.NotificationInfo
-import top.easelink.lcg.ui.profile.model.ExtraUserInfo
 
 @WorkerThread
 fun checkLoginState(doc: Document) {
     try {
-        val userInfo = parseUserInfo(doc)
+        val userInfo = parseUserInfo(doc, LCGApp.context.getString(R.string.login_or_register))
         if (userInfo.errorMessage?.isNotEmpty() == true) {
             Timber.e(userInfo.errorMessage)
         }
@@ -31,62 +27,6 @@ fun checkLoginState(doc: Document) {
     }
 }
 
-@WorkerThread
-fun parseExtraUserInfoProfilePage(content: String): List<ExtraUserInfo> {
-    return Jsoup.parse(content).let {
-        it.getElementsByTag("dt").zip(it.getElementsByTag("dd")).map { pairs ->
-            ExtraUserInfo(pairs.first.text(), pairs.second.text())
-        }
-    }
-}
-
-@WorkerThread
-@Throws(NullPointerException::class, AntiScrapingException::class)
-fun parseUserInfo(doc: Document): UserInfo {
-    with(doc) {
-        val userName = doc.selectFirst("h2.mt")?.text()
-        val notif = LCGApp.context.getString(R.string.login_or_register)
-        when {
-            userName.isNullOrEmpty() -> {
-                val message = getElementById("messagetext")?.text()
-                if (message.isNullOrEmpty()) {
-                    throw AntiScrapingException()
-                } else {
-                    return UserInfo(message)
-                }
-            }
-            userName == notif -> {
-                return UserInfo(notif)
-            }
-            else -> {
-                val avatar = selectFirst("div.avt > a > img")?.attr("src")
-                val groupInfo = getElementById("g_upmine")?.text()
-                val infoList =
-                    getElementById("psts").selectFirst("ul.pf_l").getElementsByTag("li").also {
-                        it.forEach { il ->
-                            il.selectFirst("em").appendText(" : ")
-                        }
-                    }
-                val signInState = select("img.qq_bind")
-                    ?.firstOrNull {
-                        !(it.attr("src")?.contains("qq") ?: true)
-                    }
-                    ?.attr("src")
-                return UserInfo(
-                    userName = userName,
-                    avatarUrl = avatar,
-                    groupInfo = groupInfo,
-                    wuaiCoin = infoList[3].text(),
-                    credit = infoList[1].text(),
-                    answerRate = infoList[6].text(),
-                    enthusiasticValue = infoList[7].text(),
-                    signInStateUrl = signInState
-                )
-            }
-        }
-    }
-}
-
 @WorkerThread
 fun checkMessages(doc: Document) {
     val notificationInfo = parseNotificationInfo(doc)
@@ -94,44 +34,3 @@ fun checkMessages(doc: Document) {
         EventBus.getDefault().post(NewMessageEvent(notificationInfo))
     }
 }
-
-@WorkerThread
-fun extractFormHash(doc: Document): String? {
-    return doc.selectFirst("input[name=formhash]")?.attr("value")
-}
-
-@WorkerThread
-fun parseNotificationInfo(doc: Document): NotificationInfo {
-    with(doc) {
-        val menu: Element? = getElementById("myprompt_menu")
-        val requestList = mutableListOf<String>()
-        var message = 0
-        var follower = 0
-        var myPost = 0
-        var systemNotifs = 0
-        menu?.select("li")?.forEach {
-            try {
-                it.select("a > span").first()?.text()?.also { v ->
-                    Timber.d(it.toString())
-                    if (v.isNotBlank() && v.toInt() >= 1) {
-                        it.selectFirst("a")?.attr("href")?.also { url ->
-                            requestList.add(url)
-                            when {
-                                url.contains("mypost") -> myPost++
-                                url.contains("follower") -> follower++
-                                url.contains("pm") -> message++
-                                url.contains("system") -> systemNotifs++
-                                else -> {
-                                    // do nothing
-                                }
-                            }
-                        }
-                    }
-                }
-            } catch (e: NumberFormatException) {
-                // don't care
-            }
-        }
-        return NotificationInfo(message, follower, myPost, systemNotifs)
-    }
-}
\ No newline at end of file
@@ -1,6 +1,7 @@
 package top.easelink.lcg.ui.main.source
 
 import top.easelink.lcg.ui.main.source.model.ArticleEntity
+import top.easelink.lcg.ui.main.source.model.FavoriteArticle
 
 /**
  * author : junzhang
@@ -8,9 +9,15 @@ import top.easelink.lcg.ui.main.source.model.ArticleEntity
  * desc   :
  */
 interface FavoritesLocalDataSource {
-    fun getAllFavoriteArticles(): List<ArticleEntity>
+    /**
+     * @param after last favorite of previous page, null for the first page
+     */
+    fun getFavoriteArticles(after: FavoriteArticle?, limit: Int): List<FavoriteArticle>
     fun addAllArticleToFavorite(articleEntities: List<ArticleEntity>): Boolean
     fun addArticleToFavorite(articleEntity: ArticleEntity): Boolean
     fun delArticleFromFavorite(id: String): Boolean
     fun delAllArticlesFromFavorite(): Boolean
+    fun getFavoriteIds(): List<String>
+    fun getSyncedFavoriteIds(): List<String>
+    fun applyFavoritesDiff(inserts: List<ArticleEntity>, deleteIds: List<String>): Boolean
 }
\ No newline at end of file
@@ -0,0 +1,99 @@
+package top.easelink.lcg.ui.main.source.local
+
+import com.google.gson.Gson
+import top.easelink.lcg.ui.main.source.model.ArticleAbstractResponse
+import top.easelink.lcg.ui.main.source.model.ArticleDetail
+import top.easelink.lcg.ui.main.source.model.Post
+import java.io.DataInput
+import java.io.DataOutput
+
+/**
+ * Compact binary form of a parsed thread page:
+ * title, next page url, formhash, abstract as json, then posts field by field.
+ * Callers put their own version in front of it.
+ */
+internal object ArticleDetailCodec {
+
+    private val gson = Gson()
+
+    fun write(out: DataOutput, detail: ArticleDetail) {
+        out.writeString(detail.articleTitle)
+        out.writeString(detail.nextPageUrl)
+        out.writeString(detail.fromHash)
+        out.writeString(detail.articleAbstractResponse?.let { gson.toJson(it) })
+        out.writeInt(detail.postList.size)
+        detail.postList.forEach {
+            out.writeString(it.author)
+            out.writeString(it.avatar)
+            out.writeString(it.date)
+            out.writeString(it.content)
+            out.writeString(it.replyUrl)
+            out.writeString(it.replyAddUrl)
+            out.writeString(it.profileUrl)
+            out.writeString(it.extraInfo)
+            out.writeString(it.followInfo?.first)
+            out.writeString(it.followInfo?.second)
+        }
+    }
+
+    fun read(input: DataInput): ArticleDetail {
+        val title = input.readString().orEmpty()
+        val nextPageUrl = input.readString().orEmpty()
+        val formHash = input.readString()
+        val articleAbstract = input.readString()?.let {
+            gson.fromJson(it, ArticleAbstractResponse::class.java)
+        }
+        val posts = List(input.readInt()) {
+            val author = input.readString().orEmpty()
+            val avatar = input.readString().orEmpty()
+            val date = input.readString().orEmpty()
+            val content = input.readString().orEmpty()
+            val replyUrl = input.readString()
+            val replyAddUrl = input.readString()
+            val profileUrl = input.readString()
+            val extraInfo = input.readString()
+            val followTitle = input.readString()
+            val followUrl = input.readString()
+            Post(
+                author = author,
+                avatar = avatar,
+                date = date,
+                content = content,
+                replyUrl = replyUrl,
+                replyAddUrl = replyAddUrl,
+                profileUrl = profileUrl,
+                extraInfo = extraInfo,
+                followInfo = if (followTitle != null && followUrl != null) {
+                    followTitle to followUrl
+                } else {
+                    null
+                }
+            )
+        }
+        return ArticleDetail(title, posts, nextPageUrl, formHash, articleAbstract)
+    }
+}
+
+/**
+ * Length of utf-8 bytes then the bytes, -1 for null.
+ * Unlike writeUTF it has no 64k limit, posts can be longer than that.
+ */
+internal fun DataOutput.writeString(s: String?) {
+    if (s == null) {
+        writeInt(-1)
+        return
+    }
+    val bytes = s.toByteArray(Charsets.UTF_8)
+    writeInt(bytes.size)
+    write(bytes)
+}
+
+internal fun DataInput.readString(): String? {
+    val length = readInt()
+    if (length < 0) {
+        return null
+    }
+    val bytes = ByteArray(length)
+    readFully(bytes)
+    return String(bytes, Charsets.UTF_8)
+}
@@ -5,6 +5,7 @@ import androidx.room.Insert
 import androidx.room.OnConflictStrategy
 import androidx.room.Query
 import top.easelink.lcg.ui.main.source.model.ArticleEntity
+import top.easelink.lcg.ui.main.source.model.FavoriteArticle
 
 /**
  * author : junzhang
@@ -27,12 +28,33 @@ interface ArticlesDao {
     fun insertAllArticles(articleEntities: List<ArticleEntity>)
 
     /**
-     * Select all articles from my collections.
-     *
-     * @return all collected articles.
+     * Select the newest favorites, without content.
+     */
+    @Query(
+        """SELECT id, title, author, url, timestamp FROM articles
+        ORDER BY timestamp DESC, id DESC LIMIT :limit"""
+    )
+    fun getFavorites(limit: Int): List<FavoriteArticle>
+
+    /**
+     * Select favorites which come after (timestamp, id) in [getFavorites]' order.
+     * Both conditions are on the (timestamp, id) index, so a page costs the same wherever it is.
+     */
+    @Query(
+        """SELECT id, title, author, url, timestamp FROM articles
+        WHERE timestamp <= :timestamp AND (timestamp < :timestamp OR id < :id)
+        ORDER BY timestamp DESC, id DESC LIMIT :limit"""
+    )
+    fun getFavoritesAfter(timestamp: Long, id: String, limit: Int): List<FavoriteArticle>
+
+    @Query("SELECT id FROM articles")
+    fun getArticleIds(): List<String>
+
+    /**
+     * Select ids of articles which come from online favorites, they carry a delete url.
      */
-    @Query("SELECT * FROM articles")
-    fun getArticles(): List<ArticleEntity>
+    @Query("SELECT id FROM articles WHERE del_url != ''")
+    fun getSyncedArticleIds(): List<String>
 
     /**
      * Delete an article by id.
@@ -42,6 +64,14 @@ interface ArticlesDao {
     @Query("DELETE FROM articles WHERE id = :id")
     fun deleteArticleById(id: String): Int
 
+    /**
+     * Delete articles by ids, keep the list shorter than sqlite's variable limit (999).
+     *
+     * @return the number of articles deleted.
+     */
+    @Query("DELETE FROM articles WHERE id IN (:ids)")
+    fun deleteArticlesByIds(ids: List<String>): Int
+
     /**
      * Delete all articles.
      */
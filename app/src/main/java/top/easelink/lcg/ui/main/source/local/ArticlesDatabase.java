@@ -1,23 +1,36 @@
 package top.easelink.lcg.ui.main.source.local;
 
+import androidx.annotation.NonNull;
 import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
 
 import top.easelink.lcg.BuildConfig;
 import top.easelink.lcg.appinit.LCGApp;
 import top.easelink.lcg.ui.main.source.model.ArticleEntity;
+import top.easelink.lcg.ui.main.source.model.SearchEntry;
 
 /**
  * author : junzhang
  * date   : 2019-07-26 13:53
  * desc   :
  */
-@Database(entities = {ArticleEntity.class}, version = 2, exportSchema = false)
+@Database(entities = {ArticleEntity.class, SearchEntry.class}, version = 5, exportSchema = false)
 public abstract class ArticlesDatabase extends RoomDatabase {
     private static final Object sLock = new Object();
     private static ArticlesDatabase mInstance;
 
+    // index for paging favorites, added without dropping them
+    private static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL(
+                "CREATE INDEX IF NOT EXISTS `index_articles_timestamp_id` ON `articles` (`timestamp`, `id`)");
+        }
+    };
+
     public static ArticlesDatabase getInstance() {
         synchronized (sLock) {
             if (mInstance == null) {
@@ -26,6 +39,7 @@ public abstract class ArticlesDatabase extends RoomDatabase {
                         LCGApp.getContext(),
                         ArticlesDatabase.class,
                         BuildConfig.DB_NAME)
+                    .addMigrations(MIGRATION_2_3, SearchIndex.MIGRATION_3_4, SearchIndex.MIGRATION_4_5)
                     .fallbackToDestructiveMigration()
                     .build();
             }
@@ -34,4 +48,6 @@ public abstract class ArticlesDatabase extends RoomDatabase {
     }
 
     public abstract ArticlesDao articlesDao();
+
+    public abstract SearchDao searchDao();
 }
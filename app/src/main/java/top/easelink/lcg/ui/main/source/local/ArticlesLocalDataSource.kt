@@ -3,6 +3,7 @@ package top.easelink.lcg.ui.main.source.local
 import androidx.annotation.WorkerThread
 import top.easelink.lcg.ui.main.source.FavoritesLocalDataSource
 import top.easelink.lcg.ui.main.source.model.ArticleEntity
+import top.easelink.lcg.ui.main.source.model.FavoriteArticle
 
 /**
  * author : junzhang
@@ -10,33 +11,74 @@ import top.easelink.lcg.ui.main.source.model.ArticleEntity
  * desc   :
  */
 object ArticlesLocalDataSource : FavoritesLocalDataSource {
+    private const val DELETE_BATCH_SIZE = 500
+
     private val mArticlesDao = ArticlesDatabase.getInstance().articlesDao()
 
     @WorkerThread
-    override fun getAllFavoriteArticles(): List<ArticleEntity> {
-        return mArticlesDao.getArticles()
+    override fun getFavoriteArticles(after: FavoriteArticle?, limit: Int): List<FavoriteArticle> {
+        return if (after == null) {
+            mArticlesDao.getFavorites(limit)
+        } else {
+            mArticlesDao.getFavoritesAfter(after.timestamp, after.id, limit)
+        }
     }
 
     @WorkerThread
     override fun addAllArticleToFavorite(articleEntities: List<ArticleEntity>): Boolean {
         mArticlesDao.insertAllArticles(articleEntities)
+        SearchIndex.putFavorites(articleEntities)
         return true
     }
 
     @WorkerThread
     override fun addArticleToFavorite(articleEntity: ArticleEntity): Boolean {
         mArticlesDao.insertArticle(articleEntity)
+        SearchIndex.putFavorites(listOf(articleEntity))
         return true
     }
 
     @WorkerThread
     override fun delArticleFromFavorite(id: String): Boolean {
+        SearchIndex.removeFavorites(listOf(id))
         return mArticlesDao.deleteArticleById(id) == 1
     }
 
     @WorkerThread
     override fun delAllArticlesFromFavorite(): Boolean {
         mArticlesDao.deleteArticles()
+        SearchIndex.clearFavorites()
+        return true
+    }
+
+    @WorkerThread
+    override fun getFavoriteIds(): List<String> {
+        return mArticlesDao.getArticleIds()
+    }
+
+    @WorkerThread
+    override fun getSyncedFavoriteIds(): List<String> {
+        return mArticlesDao.getSyncedArticleIds()
+    }
+
+    /**
+     * Insert and delete in one transaction, so the list is never seen half synced
+     */
+    @WorkerThread
+    override fun applyFavoritesDiff(inserts: List<ArticleEntity>, deleteIds: List<String>): Boolean {
+        if (inserts.isEmpty() && deleteIds.isEmpty()) {
+            return false
+        }
+        ArticlesDatabase.getInstance().runInTransaction {
+            deleteIds.chunked(DELETE_BATCH_SIZE).forEach {
+                mArticlesDao.deleteArticlesByIds(it)
+            }
+            SearchIndex.removeFavorites(deleteIds)
+            if (inserts.isNotEmpty()) {
+                mArticlesDao.insertAllArticles(inserts)
+                SearchIndex.putFavorites(inserts)
+            }
+        }
         return true
     }
 }
\ No newline at end of file
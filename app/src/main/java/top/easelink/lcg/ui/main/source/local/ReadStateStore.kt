@@ -0,0 +1,87 @@
+package top.easelink.lcg.ui.main.source.local
+
+import androidx.annotation.WorkerThread
+import timber.log.Timber
+import top.easelink.lcg.appinit.LCGApp
+import java.io.File
+import java.io.IOException
+import java.io.RandomAccessFile
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+
+/**
+ * Where each thread was read up to and how many replies it had then, keyed by thread id.
+ *
+ * States live in a memory mapped hash table of fixed size slots, see [ReadStateTable].
+ * A lookup is a few probes in memory, cheap enough for binding list items,
+ * and updates reach the file without being written out by hand.
+ *
+ * The file is mapped by [init] on a worker thread, [peek] never waits for it.
+ */
+object ReadStateStore {
+
+    class ReadState(
+        val page: Int,
+        val post: Int,
+        // UNKNOWN if the thread is not opened from a list
+        val replies: Int,
+        val time: Long
+    ) {
+        val hasReplies: Boolean
+            get() = replies != ReadStateTable.UNKNOWN
+    }
+
+    @Volatile
+    private var table: ReadStateTable? = null
+
+    /**
+     * Map the table ahead, so the first list shown has read states
+     */
+    @WorkerThread
+    fun init() {
+        table()
+    }
+
+    /**
+     * For the main thread, null until the table is mapped
+     */
+    fun peek(tid: Long): ReadState? = table?.get(tid)
+
+    @WorkerThread
+    fun get(tid: Long): ReadState? = table().get(tid)
+
+    /**
+     * A thread is opened from a list which shows [replies] of it
+     */
+    @WorkerThread
+    fun markOpened(tid: Long, replies: Int) = table().markOpened(tid, replies)
+
+    /**
+     * [post] of [page] is shown, counted from 0
+     */
+    @WorkerThread
+    fun markRead(tid: Long, page: Int, post: Int) = table().markRead(tid, page, post)
+
+    @Synchronized
+    private fun table(): ReadStateTable {
+        return table ?: ReadStateTable(map()).also { table = it }
+    }
+
+    private fun map(): ByteBuffer {
+        val size = ReadStateTable.SIZE.toLong()
+        return try {
+            val file = File(LCGApp.context.filesDir, "read_state")
+            RandomAccessFile(file, "rw").use { raf ->
+                if (raf.length() != size) {
+                    raf.setLength(size)
+                }
+                // the mapping stays valid after the channel is closed
+                raf.channel.map(FileChannel.MapMode.READ_WRITE, 0, size)
+            }
+        } catch (e: IOException) {
+            // states are kept for this run only
+            Timber.w(e)
+            ByteBuffer.allocate(ReadStateTable.SIZE)
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package top.easelink.lcg.ui.main.source.local
+
+import top.easelink.lcg.ui.main.source.local.ReadStateStore.ReadState
+import java.nio.ByteBuffer
+
+/**
+ * Open addressing hash table of read states in a [ByteBuffer], see [ReadStateStore].
+ *
+ * [SIZE] bytes: a header (magic, version), then [CAPACITY] slots of
+ * tid, page / post / replies packed into one long, then the time it's updated.
+ * Once the table is [MAX_LOAD] full, the older half of states is dropped.
+ */
+internal class ReadStateTable(
+    private val buffer: ByteBuffer,
+    private val clock: () -> Long = System::currentTimeMillis
+) {
+
+    private var count = 0
+
+    init {
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            clear()
+            buffer.putInt(0, MAGIC)
+            buffer.putInt(4, VERSION)
+        }
+        count = (0 until CAPACITY).count { buffer.getLong(slotOf(it)) != 0L }
+    }
+
+    val size: Int
+        @Synchronized get() = count
+
+    @Synchronized
+    fun get(tid: Long): ReadState? {
+        // 0 marks an empty slot
+        if (tid <= 0L) {
+            return null
+        }
+        val slot = find(tid)
+        if (buffer.getLong(slot) != tid) {
+            return null
+        }
+        val packed = buffer.getLong(slot + 8)
+        return ReadState(
+            page = (packed ushr 48).toInt(),
+            post = ((packed ushr 32) and 0xffff).toInt(),
+            replies = packed.toInt(),
+            time = buffer.getLong(slot + 16)
+        )
+    }
+
+    @Synchronized
+    fun markOpened(tid: Long, replies: Int) {
+        val old = get(tid)
+        put(tid, old?.page ?: 1, old?.post ?: 0, replies)
+    }
+
+    @Synchronized
+    fun markRead(tid: Long, page: Int, post: Int) {
+        put(tid, page, post, get(tid)?.replies ?: UNKNOWN)
+    }
+
+    private fun put(tid: Long, page: Int, post: Int, replies: Int) {
+        if (tid <= 0L) {
+            return
+        }
+        var slot = find(tid)
+        if (buffer.getLong(slot) != tid) {
+            if (count >= MAX_LOAD) {
+                dropOlderHalf()
+                slot = find(tid)
+            }
+            count++
+        }
+        val packed = (page.coerceIn(0, 0xffff).toLong() shl 48) or
+                (post.coerceIn(0, 0xffff).toLong() shl 32) or
+                (replies.toLong() and 0xffffffffL)
+        buffer.putLong(slot + 8, packed)
+        buffer.putLong(slot + 16, clock())
+        buffer.putLong(slot, tid)
+    }
+
+    /**
+     * @return offset of the slot holding [tid], or of the empty slot it goes to
+     */
+    private fun find(tid: Long): Int {
+        var index = homeOf(tid)
+        while (true) {
+            val slot = slotOf(index)
+            val key = buffer.getLong(slot)
+            if (key == tid || key == 0L) {
+                return slot
+            }
+            index = (index + 1) and (CAPACITY - 1)
+        }
+    }
+
+    private fun dropOlderHalf() {
+        val kept = (0 until CAPACITY)
+            .map { slotOf(it) }
+            .filter { buffer.getLong(it) != 0L }
+            .sortedByDescending { buffer.getLong(it + 16) }
+            .take(CAPACITY / 2)
+            .map { Triple(buffer.getLong(it), buffer.getLong(it + 8), buffer.getLong(it + 16)) }
+        clear()
+        kept.forEach { (tid, packed, time) ->
+            val slot = find(tid)
+            buffer.putLong(slot + 8, packed)
+            buffer.putLong(slot + 16, time)
+            buffer.putLong(slot, tid)
+        }
+        count = kept.size
+    }
+
+    private fun clear() {
+        for (offset in HEADER_SIZE until SIZE step 8) {
+            buffer.putLong(offset, 0L)
+        }
+        count = 0
+    }
+
+    companion object {
+        private const val MAGIC = 0x4c435253 // LCRS
+        private const val VERSION = 1
+        private const val HEADER_SIZE = 16
+        private const val SLOT_SIZE = 24
+
+        const val CAPACITY = 8192
+        const val MAX_LOAD = CAPACITY * 3 / 4
+        const val SIZE = HEADER_SIZE + CAPACITY * SLOT_SIZE
+
+        const val UNKNOWN = -1
+
+        private fun slotOf(index: Int) = HEADER_SIZE + index * SLOT_SIZE
+
+        // spread sequential thread ids over the table
+        private fun mix(tid: Long): Long {
+            var h = tid * -0x61c8864680b583ebL
+            h = h xor (h ushr 32)
+            return h
+        }
+
+        /**
+         * @return index of the slot [tid] is probed from
+         */
+        internal fun homeOf(tid: Long): Int = (mix(tid) and (CAPACITY - 1).toLong()).toInt()
+    }
+}
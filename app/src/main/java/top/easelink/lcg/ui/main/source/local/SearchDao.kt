@@ -0,0 +1,50 @@
+package top.easelink.lcg.ui.main.source.local
+
+import androidx.room.Dao
+import androidx.room.Insert
+import androidx.room.Query
+import top.easelink.lcg.ui.main.source.model.SearchEntry
+import top.easelink.lcg.ui.main.source.model.SearchHit
+
+/**
+ * Data Access Object for the local search index, see [SearchIndex].
+ */
+@Dao
+interface SearchDao {
+
+    @Insert
+    fun insertEntries(entries: List<SearchEntry>)
+
+    /**
+     * Keep the list shorter than sqlite's variable limit (999).
+     */
+    @Query("DELETE FROM search_index WHERE rowid IN (:rowIds)")
+    fun deleteEntries(rowIds: List<Long>): Int
+
+    @Query("DELETE FROM search_index WHERE kind = :kind")
+    fun deleteEntriesOf(kind: Int)
+
+    @Query("DELETE FROM search_index WHERE rowid = :rowId AND url = :url")
+    fun deleteEntry(rowId: Long, url: String): Int
+
+    @Query("SELECT url FROM search_index WHERE rowid = :rowId")
+    fun getUrl(rowId: Long): String?
+
+    @Query("SELECT COUNT(*) FROM search_index WHERE kind = :kind")
+    fun countOf(kind: Int): Int
+
+    @Query(
+        """DELETE FROM search_index WHERE rowid IN
+        (SELECT rowid FROM search_index WHERE kind = :kind ORDER BY indexed_at LIMIT :count)"""
+    )
+    fun deleteOldest(kind: Int, count: Int): Int
+
+    /**
+     * @param match fts query, see [SearchIndex.matchOf]
+     */
+    @Query(
+        """SELECT url, display_title, summary, kind FROM search_index
+        WHERE search_index MATCH :match ORDER BY kind, rowid LIMIT :limit"""
+    )
+    fun search(match: String, limit: Int): List<SearchHit>
+}
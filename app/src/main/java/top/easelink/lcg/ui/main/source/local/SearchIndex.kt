@@ -0,0 +1,273 @@
+package top.easelink.lcg.ui.main.source.local
+
+import android.content.ContentValues
+import android.database.sqlite.SQLiteDatabase
+import androidx.annotation.WorkerThread
+import androidx.room.migration.Migration
+import androidx.sqlite.db.SupportSQLiteDatabase
+import okio.ByteString.Companion.encodeUtf8
+import org.jsoup.Jsoup
+import top.easelink.lcg.ui.main.source.model.ArticleDetail
+import top.easelink.lcg.ui.main.source.model.ArticleEntity
+import top.easelink.lcg.ui.main.source.model.SearchEntry
+import top.easelink.lcg.ui.main.source.model.SearchHit
+import top.easelink.lcg.utils.threadIdOf
+import top.easelink.lcg.utils.threadPageOf
+
+/**
+ * Full text index of favorites and threads stored on device, so searching them needs no network.
+ *
+ * Sqlite's tokenizers don't split chinese words, a run of han characters would be one token.
+ * Text is segmented before it's indexed instead: a cjk run becomes its bigrams plus its last
+ * character, other words are lower cased, everything else is a separator.
+ * A query is segmented the same way, see [matchOf].
+ *
+ * A thread is one row keyed by its tid, holding its first page, or the first page of it read
+ * until that one is. Only pages read are indexed, prefetched ones are not. The row goes with the
+ * page in [ThreadStore], and the oldest rows are dropped once there are over [MAX_THREADS].
+ */
+object SearchIndex {
+
+    const val KIND_FAVORITE = 0
+    const val KIND_THREAD = 1
+
+    private const val MAX_INDEXED_CHARS = 20_000
+    private const val SUMMARY_LENGTH = 120
+    private const val BATCH_SIZE = 500
+    private const val MAX_THREADS = 2000
+
+    private val searchDao by lazy { ArticlesDatabase.getInstance().searchDao() }
+
+    /**
+     * Create the index and add favorites saved before it
+     */
+    @JvmField
+    val MIGRATION_3_4: Migration = object : Migration(3, 4) {
+        override fun migrate(database: SupportSQLiteDatabase) {
+            createIndex(database)
+        }
+    }
+
+    /**
+     * Thread rows are keyed by tid and carry when they're indexed from now on, start over
+     */
+    @JvmField
+    val MIGRATION_4_5: Migration = object : Migration(4, 5) {
+        override fun migrate(database: SupportSQLiteDatabase) {
+            database.execSQL("DROP TABLE IF EXISTS `search_index`")
+            createIndex(database)
+        }
+    }
+
+    private fun createIndex(database: SupportSQLiteDatabase) {
+        database.execSQL(
+            "CREATE VIRTUAL TABLE IF NOT EXISTS `search_index` USING FTS4(" +
+                    "`title` TEXT NOT NULL, `content` TEXT NOT NULL, `url` TEXT NOT NULL, " +
+                    "`display_title` TEXT NOT NULL, `summary` TEXT NOT NULL, " +
+                    "`kind` INTEGER NOT NULL, `indexed_at` INTEGER NOT NULL, " +
+                    "notindexed=`url`, notindexed=`display_title`, notindexed=`summary`, " +
+                    "notindexed=`kind`, notindexed=`indexed_at`)"
+        )
+        database.query("SELECT title, author, url, content FROM articles").use {
+            while (it.moveToNext()) {
+                val entry = favoriteEntryOf(
+                    ArticleEntity(
+                        title = it.getString(0).orEmpty(),
+                        author = it.getString(1).orEmpty(),
+                        url = it.getString(2).orEmpty(),
+                        content = it.getString(3).orEmpty(),
+                        timestamp = 0L
+                    )
+                )
+                val values = ContentValues().apply {
+                    put("rowid", entry.rowId)
+                    put("title", entry.title)
+                    put("content", entry.content)
+                    put("url", entry.url)
+                    put("display_title", entry.displayTitle)
+                    put("summary", entry.summary)
+                    put("kind", entry.kind)
+                    put("indexed_at", entry.indexedAt)
+                }
+                database.insert("search_index", SQLiteDatabase.CONFLICT_REPLACE, values)
+            }
+        }
+    }
+
+    @WorkerThread
+    fun putFavorites(articles: List<ArticleEntity>) {
+        put(articles.map { favoriteEntryOf(it) })
+    }
+
+    @WorkerThread
+    fun removeFavorites(ids: List<String>) {
+        ids.chunked(BATCH_SIZE).forEach { chunk ->
+            searchDao.deleteEntries(chunk.map { rowIdOf(KIND_FAVORITE, it) })
+        }
+    }
+
+    @WorkerThread
+    fun clearFavorites() {
+        searchDao.deleteEntriesOf(KIND_FAVORITE)
+    }
+
+    /**
+     * Index a page of a thread which is read, it replaces the thread's row if it's the first page
+     * or the thread is not indexed yet
+     */
+    @WorkerThread
+    fun putThread(query: String, detail: ArticleDetail) {
+        val tid = threadIdOf(query) ?: return
+        val rowId = rowIdOf(KIND_THREAD, tid.toString())
+        if (threadPageOf(query) != 1 && searchDao.getUrl(rowId) != null) {
+            return
+        }
+        val text = StringBuilder()
+        for (post in detail.postList) {
+            if (text.length >= MAX_INDEXED_CHARS) {
+                break
+            }
+            text.append(Jsoup.parseBodyFragment(post.content).text()).append('\n')
+        }
+        val content = text.take(MAX_INDEXED_CHARS).toString()
+        put(
+            listOf(
+                SearchEntry(
+                    rowId = rowId,
+                    title = segment(detail.articleTitle),
+                    content = segment(content),
+                    url = query,
+                    displayTitle = detail.articleTitle,
+                    summary = content.take(SUMMARY_LENGTH),
+                    kind = KIND_THREAD,
+                    indexedAt = System.currentTimeMillis()
+                )
+            )
+        )
+        val extra = searchDao.countOf(KIND_THREAD) - MAX_THREADS
+        if (extra > 0) {
+            searchDao.deleteOldest(KIND_THREAD, extra)
+        }
+    }
+
+    /**
+     * Page [query] is dropped from [ThreadStore], so is the thread's row if it's from that page
+     */
+    @WorkerThread
+    fun removeThreadPage(query: String) {
+        val tid = threadIdOf(query) ?: return
+        searchDao.deleteEntry(rowIdOf(KIND_THREAD, tid.toString()), query)
+    }
+
+    /**
+     * @return favorites first, then threads, one hit per url
+     */
+    @WorkerThread
+    fun search(keyword: String, limit: Int): List<SearchHit> {
+        val match = matchOf(keyword) ?: return emptyList()
+        return searchDao.search(match, limit).distinctBy { it.url }
+    }
+
+    private fun put(entries: List<SearchEntry>) {
+        if (entries.isEmpty()) {
+            return
+        }
+        // fts tables don't take insert or replace everywhere, replace by hand
+        ArticlesDatabase.getInstance().runInTransaction {
+            entries.chunked(BATCH_SIZE).forEach { chunk ->
+                searchDao.deleteEntries(chunk.map { it.rowId })
+                searchDao.insertEntries(chunk)
+            }
+        }
+    }
+
+    private fun favoriteEntryOf(article: ArticleEntity): SearchEntry {
+        return SearchEntry(
+            rowId = rowIdOf(KIND_FAVORITE, article.id),
+            title = segment(article.title),
+            content = segment("${article.author} ${article.content}".take(MAX_INDEXED_CHARS)),
+            url = article.url,
+            displayTitle = article.title,
+            summary = article.content.take(SUMMARY_LENGTH),
+            kind = KIND_FAVORITE,
+            indexedAt = System.currentTimeMillis()
+        )
+    }
+
+    // rows are replaced by rowid, a favorite id or a tid gets the same one every time
+    private fun rowIdOf(kind: Int, key: String): Long {
+        return "$kind|$key".encodeUtf8().sha1().asByteBuffer().long
+    }
+
+    internal fun segment(text: String): String {
+        val out = StringBuilder(text.length * 3)
+        runsOf(text).forEach { run ->
+            if (isCjk(run[0])) {
+                for (i in 0 until run.length - 1) {
+                    out.append(run, i, i + 2).append(' ')
+                }
+                out.append(run[run.length - 1]).append(' ')
+            } else {
+                out.append(run).append(' ')
+            }
+        }
+        return out.toString()
+    }
+
+    /**
+     * Words of a query must all match: a cjk word as a phrase of its bigrams,
+     * a single cjk character or other word as a prefix.
+     *
+     * @return null if nothing in [keyword] can be searched
+     */
+    internal fun matchOf(keyword: String): String? {
+        return runsOf(keyword)
+            .map { run ->
+                when {
+                    !isCjk(run[0]) || run.length == 1 -> "$run*"
+                    else -> (0 until run.length - 1).joinToString(" ", "\"", "\"") {
+                        run.substring(it, it + 2)
+                    }
+                }
+            }
+            .takeIf { it.isNotEmpty() }
+            ?.joinToString(" ")
+    }
+
+    /**
+     * Split [text] into cjk runs and lower cased words, other characters are dropped
+     */
+    private fun runsOf(text: String): List<String> {
+        val runs = ArrayList<String>()
+        val current = StringBuilder()
+        var currentIsCjk = false
+        for (c in text) {
+            val cjk = isCjk(c)
+            if (!cjk && !Character.isLetterOrDigit(c)) {
+                if (current.isNotEmpty()) runs.add(current.toString())
+                current.setLength(0)
+                continue
+            }
+            if (current.isNotEmpty() && cjk != currentIsCjk) {
+                runs.add(current.toString())
+                current.setLength(0)
+            }
+            currentIsCjk = cjk
+            current.append(c.toLowerCase())
+        }
+        if (current.isNotEmpty()) runs.add(current.toString())
+        return runs
+    }
+
+    private fun isCjk(c: Char): Boolean {
+        return when (Character.UnicodeBlock.of(c)) {
+            Character.UnicodeBlock.CJK_UNIFIED_IDEOGRAPHS,
+            Character.UnicodeBlock.CJK_UNIFIED_IDEOGRAPHS_EXTENSION_A,
+            Character.UnicodeBlock.CJK_COMPATIBILITY_IDEOGRAPHS,
+            Character.UnicodeBlock.HIRAGANA,
+            Character.UnicodeBlock.KATAKANA,
+            Character.UnicodeBlock.HANGUL_SYLLABLES -> true
+            else -> false
+        }
+    }
+}
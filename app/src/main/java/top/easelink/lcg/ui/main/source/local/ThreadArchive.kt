@@ -0,0 +1,229 @@
+package top.easelink.lcg.ui.main.source.local
+
+import android.graphics.Bitmap
+import android.graphics.BitmapFactory
+import androidx.annotation.WorkerThread
+import okio.ByteString.Companion.encodeUtf8
+import timber.log.Timber
+import top.easelink.lcg.appinit.LCGApp
+import top.easelink.lcg.ui.main.source.model.ArticleDetail
+import top.easelink.lcg.utils.threadIdOf
+import java.io.*
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+
+/**
+ * Threads downloaded for offline reading, one archive file per thread.
+ *
+ * An archive holds every page of a thread and the images in its posts:
+ * header (magic, version, save time, index offset), entries one after another,
+ * then an index of key -> (offset, length) at the end.
+ * Keys are `page:<query>` and `img:<url>`, pages are in [ArticleDetailCodec] format.
+ *
+ * Archives are mapped on opening, a page or an image is only read once it's shown.
+ */
+object ThreadArchive {
+
+    private const val MAGIC = 0x4c434741 // LCGA
+    private const val VERSION = 1
+    private const val SUFFIX = ".archive"
+    private const val HEADER_SIZE = 4 + 4 + 8 + 8
+    private const val INDEX_OFFSET_POSITION = 4 + 4 + 8L
+
+    private const val PAGE_PREFIX = "page:"
+    private const val IMAGE_PREFIX = "img:"
+
+    private val dir: File by lazy { File(LCGApp.context.filesDir, "archives") }
+
+    internal class Entry(val offset: Int, val length: Int)
+
+    class Archive internal constructor(
+        private val buffer: ByteBuffer,
+        private val index: Map<String, Entry>,
+        val savedAt: Long
+    ) {
+
+        fun page(query: String): ArticleDetail? {
+            return try {
+                open("$PAGE_PREFIX$query")?.let { ArticleDetailCodec.read(DataInputStream(it)) }
+            } catch (e: Exception) {
+                // a broken entry, e.g. its bounds are off or the abstract is not json
+                Timber.w(e)
+                null
+            }
+        }
+
+        @WorkerThread
+        fun image(url: String): Bitmap? {
+            return open("$IMAGE_PREFIX$url")?.let { BitmapFactory.decodeStream(it) }
+        }
+
+        private fun open(key: String): InputStream? {
+            val entry = index[key] ?: return null
+            // duplicates share the mapped bytes but not the position, so readers don't interfere
+            val slice = buffer.duplicate()
+            slice.position(entry.offset)
+            slice.limit(entry.offset + entry.length)
+            return ByteBufferInputStream(slice)
+        }
+    }
+
+    /**
+     * Appends entries to a temporary file, the archive only shows up once [finish] is called.
+     * Entries can be put from several threads.
+     */
+    class Writer internal constructor(private val file: File) {
+
+        private val tmp = File(file.parentFile, "${file.name}.tmp")
+        private val out: DataOutputStream
+        private val index = LinkedHashMap<String, Entry>()
+
+        init {
+            file.parentFile?.mkdirs()
+            out = DataOutputStream(BufferedOutputStream(FileOutputStream(tmp)))
+            out.writeInt(MAGIC)
+            out.writeInt(VERSION)
+            out.writeLong(System.currentTimeMillis())
+            // patched by finish
+            out.writeLong(0L)
+        }
+
+        fun putPage(query: String, detail: ArticleDetail) {
+            val bytes = ByteArrayOutputStream().also {
+                DataOutputStream(it).use { out -> ArticleDetailCodec.write(out, detail) }
+            }.toByteArray()
+            put("$PAGE_PREFIX$query", bytes)
+        }
+
+        fun putImage(url: String, bytes: ByteArray) {
+            put("$IMAGE_PREFIX$url", bytes)
+        }
+
+        @Synchronized
+        private fun put(key: String, bytes: ByteArray) {
+            if (index.containsKey(key)) {
+                return
+            }
+            index[key] = Entry(out.size(), bytes.size)
+            out.write(bytes)
+        }
+
+        @Synchronized
+        fun finish(): Boolean {
+            val indexOffset = out.size().toLong()
+            out.writeInt(index.size)
+            index.forEach { (key, entry) ->
+                out.writeString(key)
+                out.writeInt(entry.offset)
+                out.writeInt(entry.length)
+            }
+            out.close()
+            RandomAccessFile(tmp, "rw").use {
+                it.seek(INDEX_OFFSET_POSITION)
+                it.writeLong(indexOffset)
+            }
+            if (!tmp.renameTo(file)) {
+                tmp.delete()
+                return false
+            }
+            return true
+        }
+
+        @Synchronized
+        fun abort() {
+            try {
+                out.close()
+            } catch (e: IOException) {
+                Timber.w(e)
+            }
+            tmp.delete()
+        }
+    }
+
+    fun newWriter(query: String): Writer = Writer(fileOf(query))
+
+    /**
+     * @return archive of the thread which [query] belongs to, null if it's not downloaded
+     */
+    @WorkerThread
+    fun open(query: String): Archive? = open(fileOf(query))
+
+    /**
+     * @return null if [file] doesn't exist, it's deleted if it's not a readable archive
+     */
+    @WorkerThread
+    internal fun open(file: File): Archive? {
+        if (!file.exists()) {
+            return null
+        }
+        return try {
+            RandomAccessFile(file, "r").use { raf ->
+                // the mapping stays valid after the channel is closed
+                val buffer = raf.channel.map(FileChannel.MapMode.READ_ONLY, 0, raf.length())
+                readArchive(buffer)
+            }.also {
+                if (it == null) file.delete()
+            }
+        } catch (e: Exception) {
+            Timber.w(e)
+            file.delete()
+            null
+        }
+    }
+
+    /**
+     * Delete archive of the thread which [query] belongs to, archives already open stay readable
+     * @return false if it's not downloaded
+     */
+    @WorkerThread
+    fun delete(query: String): Boolean = fileOf(query).delete()
+
+    private fun readArchive(buffer: ByteBuffer): Archive? {
+        if (buffer.limit() < HEADER_SIZE
+            || buffer.getInt(0) != MAGIC
+            || buffer.getInt(4) != VERSION
+        ) {
+            return null
+        }
+        val savedAt = buffer.getLong(8)
+        val indexOffset = buffer.getLong(INDEX_OFFSET_POSITION.toInt())
+        if (indexOffset < HEADER_SIZE || indexOffset >= buffer.limit()) {
+            return null
+        }
+        val input = DataInputStream(ByteBufferInputStream(buffer.duplicate().apply {
+            position(indexOffset.toInt())
+        }))
+        val index = HashMap<String, Entry>()
+        repeat(input.readInt()) {
+            val key = input.readString() ?: throw IOException("broken index")
+            index[key] = Entry(input.readInt(), input.readInt())
+        }
+        return Archive(buffer, index, savedAt)
+    }
+
+    private fun fileOf(query: String): File {
+        val name = threadIdOf(query)?.toString() ?: query.encodeUtf8().sha1().hex()
+        return File(dir, "$name$SUFFIX")
+    }
+
+    private class ByteBufferInputStream(private val buffer: ByteBuffer) : InputStream() {
+
+        override fun read(): Int {
+            return if (buffer.hasRemaining()) buffer.get().toInt() and 0xff else -1
+        }
+
+        override fun read(b: ByteArray, off: Int, len: Int): Int {
+            if (len == 0) {
+                return 0
+            }
+            if (!buffer.hasRemaining()) {
+                return -1
+            }
+            val count = len.coerceAtMost(buffer.remaining())
+            buffer.get(b, off, count)
+            return count
+        }
+
+        override fun available(): Int = buffer.remaining()
+    }
+}
@@ -0,0 +1,148 @@
+package top.easelink.lcg.ui.main.source.local
+
+import androidx.annotation.WorkerThread
+import kotlinx.coroutines.GlobalScope
+import kotlinx.coroutines.launch
+import okio.ByteString.Companion.encodeUtf8
+import timber.log.Timber
+import top.easelink.framework.threadpool.BackGroundPool
+import top.easelink.lcg.appinit.LCGApp
+import top.easelink.lcg.ui.main.source.model.ArticleDetail
+import top.easelink.lcg.utils.getCookieIdentity
+import java.io.*
+
+/**
+ * Parsed thread pages on disk, one file per page, so a thread read before opens without
+ * network and without parsing html.
+ *
+ * Pages are kept per user for [MAX_AGE], a page older than [REFRESH_AFTER] should be refreshed
+ * once shown. Least recently saved pages go first once the store grows over [MAX_SIZE].
+ * Files are written in a compact binary format, see [ArticleDetailCodec].
+ * A page dropped from here is dropped from [SearchIndex] too.
+ */
+object ThreadStore {
+
+    private const val VERSION = 2
+    private const val MAX_AGE = 7 * 24 * 60 * 60 * 1000L
+    private const val REFRESH_AFTER = 60 * 1000L
+    private const val MAX_SIZE = 20 * 1024 * 1024L
+    private const val SUFFIX = ".page"
+
+    private val dir: File by lazy { File(LCGApp.context.filesDir, "threads") }
+
+    class StoredPage(val detail: ArticleDetail, val savedAt: Long) {
+        val isStale: Boolean
+            get() = System.currentTimeMillis() - savedAt > REFRESH_AFTER
+    }
+
+    @WorkerThread
+    fun get(query: String): StoredPage? {
+        val file = fileOf(query)
+        if (!file.exists()) {
+            return null
+        }
+        return try {
+            val page = DataInputStream(BufferedInputStream(FileInputStream(file))).use { read(it) }
+            if (page == null || System.currentTimeMillis() - page.savedAt > MAX_AGE) {
+                drop(file, query)
+                null
+            } else {
+                page
+            }
+        } catch (e: Exception) {
+            // not only IOException, a broken abstract fails in gson, drop the file either way
+            Timber.w(e)
+            drop(file, query)
+            null
+        }
+    }
+
+    /**
+     * Save [detail] in background
+     */
+    fun put(query: String, detail: ArticleDetail) {
+        val file = fileOf(query)
+        GlobalScope.launch(BackGroundPool) {
+            try {
+                dir.mkdirs()
+                val tmp = File(dir, "${file.name}.tmp")
+                DataOutputStream(BufferedOutputStream(FileOutputStream(tmp))).use {
+                    write(it, query, detail, System.currentTimeMillis())
+                }
+                if (!tmp.renameTo(file)) {
+                    tmp.delete()
+                }
+                trim()
+            } catch (e: IOException) {
+                Timber.w(e)
+            }
+        }
+    }
+
+    private fun fileOf(query: String): File {
+        // pages carry user's own info (formhash, replies only shown to repliers)
+        val name = "$query|${getCookieIdentity()}".encodeUtf8().sha1().hex()
+        return File(dir, "$name$SUFFIX")
+    }
+
+    private fun trim() {
+        val files = dir.listFiles { _, name -> name.endsWith(SUFFIX) } ?: return
+        var size = files.sumOf { it.length() }
+        if (size <= MAX_SIZE) {
+            return
+        }
+        files.sortedBy { it.lastModified() }.forEach {
+            if (size <= MAX_SIZE) {
+                return
+            }
+            size -= it.length()
+            drop(it, queryOf(it))
+        }
+    }
+
+    private fun drop(file: File, query: String?) {
+        file.delete()
+        query ?: return
+        try {
+            SearchIndex.removeThreadPage(query)
+        } catch (e: Exception) {
+            Timber.w(e)
+        }
+    }
+
+    /**
+     * @return query the page in [file] is saved for, null if it's not readable
+     */
+    private fun queryOf(file: File): String? {
+        return try {
+            DataInputStream(BufferedInputStream(FileInputStream(file), 512)).use {
+                if (it.readInt() != VERSION) {
+                    return null
+                }
+                it.readLong()
+                it.readString()
+            }
+        } catch (e: IOException) {
+            null
+        }
+    }
+
+    private fun write(out: DataOutputStream, query: String, detail: ArticleDetail, savedAt: Long) {
+        out.writeInt(VERSION)
+        out.writeLong(savedAt)
+        out.writeString(query)
+        ArticleDetailCodec.write(out, detail)
+    }
+
+    /**
+     * @return null if the file is written by another version
+     */
+    private fun read(input: DataInputStream): StoredPage? {
+        if (input.readInt() != VERSION) {
+            return null
+        }
+        val savedAt = input.readLong()
+        input.readString()
+        return StoredPage(ArticleDetailCodec.read(input), savedAt)
+    }
+}
@@ -2,6 +2,7 @@ package top.easelink.lcg.ui.main.source.model
 
 import androidx.room.ColumnInfo
 import androidx.room.Entity
+import androidx.room.Index
 import androidx.room.PrimaryKey
 
 /**
@@ -9,7 +10,11 @@ import androidx.room.PrimaryKey
  * date   : 2019-07-26 11:38
  * desc   :
  */
-@Entity(tableName = "articles")
+@Entity(
+    tableName = "articles",
+    // favorites are paged by (timestamp, id), see ArticlesDao.getFavoritesAfter
+    indices = [Index(value = ["timestamp", "id"])]
+)
 class ArticleEntity(
     @field:ColumnInfo(name = "title") var title: String,
     @field:ColumnInfo(name = "author") var author: String,
@@ -0,0 +1,14 @@
+package top.easelink.lcg.ui.main.source.model
+
+import androidx.room.ColumnInfo
+
+/**
+ * A row of favorites list, [ArticleEntity] without its content
+ */
+class FavoriteArticle(
+    @ColumnInfo(name = "id") val id: String,
+    @ColumnInfo(name = "title") val title: String,
+    @ColumnInfo(name = "author") val author: String,
+    @ColumnInfo(name = "url") val url: String,
+    @ColumnInfo(name = "timestamp") val timestamp: Long
+)
@@ -0,0 +1,31 @@
+package top.easelink.lcg.ui.main.source.model
+
+import androidx.room.ColumnInfo
+import androidx.room.Entity
+import androidx.room.Fts4
+import androidx.room.PrimaryKey
+
+/**
+ * A row of local search index, [title] and [content] are segmented, see SearchIndex.
+ * The other columns are only stored for showing the result.
+ */
+@Fts4(notIndexed = ["url", "display_title", "summary", "kind", "indexed_at"])
+@Entity(tableName = "search_index")
+class SearchEntry(
+    @PrimaryKey @ColumnInfo(name = "rowid") val rowId: Long,
+    @ColumnInfo(name = "title") val title: String,
+    @ColumnInfo(name = "content") val content: String,
+    @ColumnInfo(name = "url") val url: String,
+    @ColumnInfo(name = "display_title") val displayTitle: String,
+    @ColumnInfo(name = "summary") val summary: String,
+    @ColumnInfo(name = "kind") val kind: Int,
+    // for dropping the oldest threads
+    @ColumnInfo(name = "indexed_at") val indexedAt: Long
+)
+
+class SearchHit(
+    @ColumnInfo(name = "url") val url: String,
+    @ColumnInfo(name = "display_title") val displayTitle: String,
+    @ColumnInfo(name = "summary") val summary: String,
+    @ColumnInfo(name = "kind") val kind: Int
+)
@@ -0,0 +1,137 @@
+package top.easelink.lcg.ui.main.source.remote
+
+import android.graphics.Bitmap
+import android.graphics.BitmapFactory
+import kotlinx.coroutines.*
+import kotlinx.coroutines.sync.Semaphore
+import kotlinx.coroutines.sync.withPermit
+import org.jsoup.Jsoup
+import timber.log.Timber
+import top.easelink.framework.threadpool.IOPool
+import top.easelink.lcg.appinit.LCGApp
+import top.easelink.lcg.network.JsoupClient
+import top.easelink.lcg.ui.main.source.local.ThreadArchive
+import top.easelink.lcg.utils.WebsiteConstant.SERVER_BASE_URL
+import java.io.ByteArrayOutputStream
+
+/**
+ * Downloads a whole thread with the images in its posts into a [ThreadArchive].
+ *
+ * Pages follow the next page link one by one, the link is only known once a page is parsed.
+ * Images of a page are downloaded while the next page loads, at most [MAX_IMAGE_DOWNLOADS]
+ * at a time, and shrunk to screen width before they are saved.
+ */
+object ThreadDownloader {
+
+    private const val MAX_PAGES = 100
+    private const val MAX_IMAGE_DOWNLOADS = 4
+    private const val QUALITY = 85
+
+    class Result(val pages: Int, val images: Int, val failedImages: Int)
+
+    /**
+     * @param query first page of the thread
+     * @throws Exception if a page fails, nothing is saved then
+     */
+    suspend fun download(query: String): Result {
+        val writer = ThreadArchive.newWriter(query)
+        try {
+            val result = coroutineScope {
+                val permits = Semaphore(MAX_IMAGE_DOWNLOADS)
+                val seen = HashSet<String>()
+                val images = ArrayList<Deferred<Boolean>>()
+                var pages = 0
+                var next: String? = query
+                while (pages < MAX_PAGES) {
+                    val page = next?.takeIf { it.isNotBlank() } ?: break
+                    val detail = withContext(IOPool) {
+                        ArticlesRemoteDataSource.fetchArticleDetail(page)
+                    }
+                    writer.putPage(page, detail)
+                    pages++
+                    detail.postList
+                        .flatMap { imageUrlsOf(it.content) }
+                        .filter { seen.add(it) }
+                        .mapTo(images) { url ->
+                            async(IOPool) {
+                                permits.withPermit { downloadImage(writer, url) }
+                            }
+                        }
+                    next = detail.nextPageUrl.takeIf { it != page }
+                }
+                val saved = images.awaitAll().count { it }
+                Result(pages, saved, images.size - saved)
+            }
+            if (!writer.finish()) {
+                throw IllegalStateException("archive of $query is not saved")
+            }
+            return result
+        } catch (e: Exception) {
+            writer.abort()
+            throw e
+        }
+    }
+
+    private fun downloadImage(writer: ThreadArchive.Writer, url: String): Boolean {
+        return try {
+            val bytes = shrink(JsoupClient.downloadBytes(absoluteUrlOf(url))) ?: return false
+            writer.putImage(url, bytes)
+            true
+        } catch (e: CancellationException) {
+            throw e
+        } catch (e: Exception) {
+            // the image is loaded from network when it's shown
+            Timber.w(e)
+            false
+        }
+    }
+
+    /**
+     * @return [bytes] as they are if the image is not wider than screen, null if it's not an image
+     */
+    private fun shrink(bytes: ByteArray): ByteArray? {
+        val maxWidth = LCGApp.context.resources.displayMetrics.widthPixels
+        val bounds = BitmapFactory.Options().apply { inJustDecodeBounds = true }
+        BitmapFactory.decodeByteArray(bytes, 0, bytes.size, bounds)
+        if (bounds.outWidth <= 0) {
+            return null
+        }
+        if (bounds.outWidth <= maxWidth) {
+            return bytes
+        }
+        var sampleSize = 1
+        while (bounds.outWidth / (sampleSize * 2) >= maxWidth) {
+            sampleSize *= 2
+        }
+        val options = BitmapFactory.Options().apply { inSampleSize = sampleSize }
+        val sampled = BitmapFactory.decodeByteArray(bytes, 0, bytes.size, options) ?: return bytes
+        val bitmap = if (sampled.width > maxWidth) {
+            Bitmap.createScaledBitmap(sampled, maxWidth, sampled.height * maxWidth / sampled.width, true)
+                .also { if (it !== sampled) sampled.recycle() }
+        } else {
+            sampled
+        }
+        val format = if (bitmap.hasAlpha()) Bitmap.CompressFormat.PNG else Bitmap.CompressFormat.JPEG
+        return ByteArrayOutputStream().use {
+            bitmap.compress(format, QUALITY, it)
+            bitmap.recycle()
+            it.toByteArray()
+        }.takeIf { it.size < bytes.size } ?: bytes
+    }
+
+    // html is shown by Html.fromHtml, which hands out src as it is
+    private fun imageUrlsOf(content: String): List<String> {
+        return Jsoup.parseBodyFragment(content)
+            .select("img[src]")
+            .map { it.attr("src") }
+            .filter { it.isNotBlank() && !it.startsWith("data:") }
+    }
+
+    private fun absoluteUrlOf(src: String): String {
+        return when {
+            src.startsWith("http://") || src.startsWith("https://") -> src
+            src.startsWith("//") -> "https:$src"
+            else -> "$SERVER_BASE_URL${src.removePrefix("/")}"
+        }
+    }
+}
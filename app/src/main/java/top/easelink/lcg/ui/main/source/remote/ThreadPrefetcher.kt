@@ -0,0 +1,121 @@
+package top.easelink.lcg.ui.main.source.remote
+
+import android.os.SystemClock
+import android.util.LruCache
+import kotlinx.coroutines.GlobalScope
+import kotlinx.coroutines.launch
+import timber.log.Timber
+import top.easelink.framework.threadpool.PrefetchPool
+import top.easelink.framework.utils.NetworkUtils
+import top.easelink.lcg.appinit.LCGApp
+import top.easelink.lcg.config.AppConfig
+import top.easelink.lcg.network.TrafficCounter
+import top.easelink.lcg.ui.main.source.model.ArticleDetail
+
+/**
+ * Fetches and parses threads which are likely to be opened next, ex: the ones on screen.
+ *
+ * Pages are requested through JsoupClient so they land in page cache as well,
+ * parsed [ArticleDetail]s are kept for [DETAIL_TTL] and handed out once by [take].
+ * Threads are prefetched one by one on a low priority thread, nothing is prefetched on metered
+ * network or after the traffic / time budget of current [BUDGET_WINDOW] is used up.
+ */
+object ThreadPrefetcher {
+
+    private const val MAX_DETAILS = 10
+    private const val DETAIL_TTL = 2 * 60 * 1000L
+    private const val BUDGET_WINDOW = 5 * 60 * 1000L
+    private const val BYTE_BUDGET = 2 * 1024 * 1024L
+    private const val TIME_BUDGET = 30 * 1000L
+
+    private class Entry(val detail: ArticleDetail, val time: Long)
+
+    private val details = LruCache<String, Entry>(MAX_DETAILS)
+
+    // guarded by this
+    private val queue = LinkedHashSet<String>()
+    private var running = false
+    private var windowStart = 0L
+    private var bytesUsed = 0L
+    private var timeUsed = 0L
+
+    /**
+     * Replace pending queries with [queries], the ones already prefetched are skipped
+     */
+    fun prefetch(queries: List<String>) {
+        if (!isAllowed()) {
+            return
+        }
+        synchronized(this) {
+            // only the latest viewport matters
+            queue.clear()
+            queries.filterTo(queue) { details.get(it) == null }
+            if (running || queue.isEmpty()) {
+                return
+            }
+            running = true
+        }
+        GlobalScope.launch(PrefetchPool) {
+            drain()
+        }
+    }
+
+    /**
+     * @return prefetched detail of [query] if it's still fresh, it's removed from here
+     */
+    fun take(query: String): ArticleDetail? {
+        val entry = details.remove(query) ?: return null
+        return entry.detail.takeIf {
+            SystemClock.elapsedRealtime() - entry.time < DETAIL_TTL
+        }
+    }
+
+    private fun drain() {
+        while (true) {
+            val query = synchronized(this) {
+                val next = queue.firstOrNull()
+                if (next == null || !isAllowed()) {
+                    queue.clear()
+                    running = false
+                    return
+                }
+                queue.remove(next)
+                next
+            }
+            val start = SystemClock.elapsedRealtime()
+            val bytes = TrafficCounter.count {
+                try {
+                    details.put(
+                        query,
+                        Entry(ArticlesRemoteDataSource.fetchArticleDetail(query), SystemClock.elapsedRealtime())
+                    )
+                } catch (e: Exception) {
+                    // blocked or deleted threads fail here as well, the user will see it on opening
+                    Timber.v(e)
+                }
+            }
+            synchronized(this) {
+                bytesUsed += bytes
+                timeUsed += SystemClock.elapsedRealtime() - start
+            }
+        }
+    }
+
+    private fun isAllowed(): Boolean {
+        if (AppConfig.articleShowInWebView
+            || !NetworkUtils.isNetworkConnected(LCGApp.context)
+            || NetworkUtils.isNetworkMetered(LCGApp.context)
+        ) {
+            return false
+        }
+        synchronized(this) {
+            val now = SystemClock.elapsedRealtime()
+            if (windowStart == 0L || now - windowStart > BUDGET_WINDOW) {
+                windowStart = now
+                bytesUsed = 0L
+                timeUsed = 0L
+            }
+            return bytesUsed < BYTE_BUDGET && timeUsed < TIME_BUDGET
+        }
+    }
+}
@@ -25,7 +25,7 @@ import top.easelink.lcg.mta.EVENT_OPEN_PROFILE_PAGE
 import top.easelink.lcg.mta.EVENT_SUBSCRIBE_USER
 import top.easelink.lcg.mta.sendEvent
 import top.easelink.lcg.network.JsoupClient
-import top.easelink.lcg.ui.main.source.parseExtraUserInfoProfilePage
+import top.easelink.lcg.parser.parseExtraUserInfoProfilePage
 import top.easelink.lcg.ui.profile.model.PopUpProfileInfo
 import top.easelink.lcg.ui.webview.view.WebViewActivity
 import top.easelink.lcg.utils.WebsiteConstant.SERVER_BASE_URL
@@ -1,11 +1,16 @@
 package top.easelink.lcg.ui.search.source
 
 import android.util.ArrayMap
+import kotlinx.coroutines.CancellationException
 import org.jsoup.nodes.Document
 import timber.log.Timber
 import top.easelink.lcg.R
 import top.easelink.lcg.network.JsoupClient
-import top.easelink.lcg.ui.search.model.LCGSearchResultItem
+import top.easelink.lcg.network.Phase
+import top.easelink.lcg.network.RequestMetrics
+import top.easelink.lcg.network.RequestTag
+import top.easelink.lcg.parser.parseLCGSearchNextPage
+import top.easelink.lcg.parser.parseLCGSearchResults
 import top.easelink.lcg.ui.search.model.LCGSearchResults
 import top.easelink.lcg.utils.WebsiteConstant
 import top.easelink.lcg.utils.showMessage
@@ -42,18 +47,18 @@ object LCGSearchService {
                 put("srchtxt", keyword)
                 put("searchsubmit", "true")
             }
-            val response = JsoupClient.sendPostRequestWithUrl(url, form)
-            if (response.statusCode() in 200..299) {
-                val doc = response.parse()
-                val result = parseSearchResults(doc)
-                try {
-                    mTotalResults = doc.selectFirst("h2").text()
-                    result.totalResult = mTotalResults
-                } catch (e: Exception) {
-                    Timber.w(e)
-                }
-                return result
+            // non-2xx response throws HttpStatusException
+            val doc = JsoupClient.sendPostRequestWithUrl(url, form)
+            val result = parseSearchResults(doc)
+            try {
+                mTotalResults = doc.selectFirst("h2").text()
+                result.totalResult = mTotalResults
+            } catch (e: Exception) {
+                Timber.w(e)
             }
+            return result
+        } catch (e: CancellationException) {
+            throw e
         } catch (e: Exception) {
             Timber.e(e)
         }
@@ -68,6 +73,8 @@ object LCGSearchService {
             return parseSearchResults(JsoupClient.sendGetRequestWithQuery(mNextPageUrl!!))
         } catch (e: SocketTimeoutException) {
             showMessage(R.string.network_error)
+        } catch (e: CancellationException) {
+            throw e
         } catch (e: Exception) {
             Timber.e(e)
             showMessage(R.string.error)
@@ -76,35 +83,10 @@ object LCGSearchService {
     }
 
     private fun parseSearchResults(doc: Document): LCGSearchResults {
-        val results: List<LCGSearchResultItem> =
-            doc.getElementsByClass("pbw").mapNotNull {
-                try {
-                    val spans = it.getElementsByTag("span")
-                    val aNode = it.selectFirst("a")
-                    val pNode = it.selectFirst("p.xg1")
-                    if (spans.isNotEmpty() && spans.size == 3) {
-                        return@mapNotNull LCGSearchResultItem(
-                            title = aNode.html(),
-                            url = aNode.attr("href"),
-                            replyView = pNode.text(),
-                            content = pNode.nextElementSibling().html(),
-                            author = spans[1].text(),
-                            date = spans[0].text(),
-                            forum = spans[2].text()
-                        )
-                    }
-                } catch (e: Exception) {
-                    Timber.e(e)
-                }
-                null
-            }
-        return LCGSearchResults(results).also {
-            mNextPageUrl = try {
-                doc.selectFirst("a.nxt").attr("href")
-            } catch (e: Exception) {
-                Timber.w(e)
-                null
-            }
+        return RequestMetrics.measure(RequestTag.SEARCH, Phase.EXTRACT) {
+            parseLCGSearchResults(doc)
+        }.also {
+            mNextPageUrl = parseLCGSearchNextPage(doc)
         }
     }
 
@@ -2,9 +2,7 @@ package top.easelink.lcg.ui.search.viewmodel
 
 import androidx.lifecycle.MutableLiveData
 import androidx.lifecycle.ViewModel
-import kotlinx.coroutines.GlobalScope
-import kotlinx.coroutines.launch
-import top.easelink.framework.threadpool.IOPool
+import top.easelink.lcg.network.launchRequest
 import top.easelink.lcg.ui.search.model.BaiduSearchResult
 import top.easelink.lcg.ui.search.source.BaiduSearchService.doSearchRequest
 import top.easelink.lcg.ui.search.viewmodel.BaiduSearchResultAdapter.SearchAdapterListener
@@ -33,7 +31,7 @@ class BaiduSearchViewModel : ViewModel(), SearchAdapterListener {
             }
             else -> return
         }
-        GlobalScope.launch(IOPool) {
+        launchRequest {
             doSearchRequest(requestUrl, 0).apply {
                 if (baiduSearchResultList.isNotEmpty()) {
                     val list = searchResults.value
@@ -1,20 +1,32 @@
 package top.easelink.lcg.ui.search.viewmodel
 
+import android.text.TextUtils
 import androidx.lifecycle.MutableLiveData
 import androidx.lifecycle.ViewModel
-import kotlinx.coroutines.GlobalScope
-import kotlinx.coroutines.launch
-import top.easelink.framework.threadpool.IOPool
+import timber.log.Timber
+import top.easelink.lcg.R
+import top.easelink.lcg.appinit.LCGApp
+import top.easelink.lcg.network.launchRequest
+import top.easelink.lcg.ui.main.source.local.SearchIndex
+import top.easelink.lcg.ui.main.source.model.SearchHit
 import top.easelink.lcg.ui.search.model.LCGSearchResultItem
+import top.easelink.lcg.ui.search.model.LCGSearchResults
 import top.easelink.lcg.ui.search.source.LCGSearchService.doSearchNextPage
 import top.easelink.lcg.ui.search.source.LCGSearchService.doSearchWith
 
+/**
+ * Favorites and threads on device are searched first, see [SearchIndex].
+ * The site is only searched if nothing is found locally, or once local results are scrolled through.
+ */
 class LCGSearchViewModel : ViewModel(), LCGSearchResultAdapter.ContentFetcher {
     val searchResults = MutableLiveData<List<LCGSearchResultItem>>()
     val totalResult = MutableLiveData<String?>()
     val isLoading = MutableLiveData<Boolean>()
     private var mKeyWord: String? = null
 
+    // false while only local results are shown
+    private var searchedRemote = false
+
     fun setKeyword(keyword: String?) {
         mKeyWord = keyword
         fetch(LCGSearchResultAdapter.ContentFetcher.Type.INIT, null)
@@ -28,27 +40,38 @@ class LCGSearchViewModel : ViewModel(), LCGSearchResultAdapter.ContentFetcher {
             isLoading.value = true
         }
         mKeyWord?.let {
-            GlobalScope.launch(IOPool) {
+            launchRequest {
                 when (type) {
-                    LCGSearchResultAdapter.ContentFetcher.Type.INIT ->
-                        doSearchWith(it).let {
-                            if (!it.searchResultList.isNullOrEmpty()) {
-                                searchResults.postValue(it.searchResultList)
-                            }
-                            if (!it.totalResult.isNullOrEmpty()) {
-                                totalResult.postValue(it.totalResult)
+                    LCGSearchResultAdapter.ContentFetcher.Type.INIT -> {
+                        val local = searchLocal(it)
+                        if (local.isNotEmpty()) {
+                            searchedRemote = false
+                            searchResults.postValue(local)
+                            totalResult.postValue(
+                                LCGApp.context.getString(R.string.local_search_result, local.size)
+                            )
+                            callback?.invoke(true)
+                        } else {
+                            searchedRemote = true
+                            doSearchWith(it).let {
+                                if (!it.searchResultList.isNullOrEmpty()) {
+                                    searchResults.postValue(it.searchResultList)
+                                }
+                                if (!it.totalResult.isNullOrEmpty()) {
+                                    totalResult.postValue(it.totalResult)
+                                }
+                                callback?.invoke(!it.searchResultList.isNullOrEmpty())
                             }
-                            callback?.invoke(!it.searchResultList.isNullOrEmpty())
                         }
+                    }
                     LCGSearchResultAdapter.ContentFetcher.Type.NEXT_PAGE -> {
-                        doSearchNextPage().let {
-                            val list = searchResults.value
-                            if (!it.searchResultList.isNullOrEmpty() && !list.isNullOrEmpty()) {
-                                searchResults.postValue(list.plus(it.searchResultList))
-                            }
-                            totalResult.postValue(it.totalResult)
-                            callback?.invoke(!it.searchResultList.isNullOrEmpty())
+                        val result = if (searchedRemote) {
+                            doSearchNextPage()
+                        } else {
+                            searchedRemote = true
+                            doSearchWith(it)
                         }
+                        appendResult(result, callback)
                     }
                 }
                 if (type == LCGSearchResultAdapter.ContentFetcher.Type.INIT) {
@@ -57,4 +80,44 @@ class LCGSearchViewModel : ViewModel(), LCGSearchResultAdapter.ContentFetcher {
             }
         }
     }
-}
\ No newline at end of file
+
+    private fun appendResult(result: LCGSearchResults, callback: ((Boolean) -> Unit)?) {
+        val list = searchResults.value
+        if (!result.searchResultList.isNullOrEmpty() && !list.isNullOrEmpty()) {
+            searchResults.postValue(list.plus(result.searchResultList))
+        }
+        totalResult.postValue(result.totalResult)
+        callback?.invoke(!result.searchResultList.isNullOrEmpty())
+    }
+
+    private fun searchLocal(keyword: String): List<LCGSearchResultItem> {
+        return try {
+            SearchIndex.search(keyword, MAX_LOCAL_RESULTS).map { it.toResultItem() }
+        } catch (e: Exception) {
+            Timber.w(e)
+            emptyList()
+        }
+    }
+
+    private fun SearchHit.toResultItem(): LCGSearchResultItem {
+        val source = if (kind == SearchIndex.KIND_FAVORITE) {
+            R.string.local_search_favorite
+        } else {
+            R.string.local_search_thread
+        }
+        // results are shown as html
+        return LCGSearchResultItem(
+            title = TextUtils.htmlEncode(displayTitle),
+            content = TextUtils.htmlEncode(summary),
+            url = url,
+            author = "",
+            date = "",
+            replyView = "",
+            forum = LCGApp.context.getString(source)
+        )
+    }
+
+    companion object {
+        private const val MAX_LOCAL_RESULTS = 100
+    }
+}
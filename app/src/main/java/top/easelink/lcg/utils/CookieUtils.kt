@@ -1,44 +1,34 @@
 package top.easelink.lcg.utils
 
-import android.webkit.CookieManager
-import java.util.*
+import top.easelink.lcg.network.CookieStore
 
-fun getCookies() = SharedPreferencesHelper
-    .getCookieSp()
-    .all
-    .mapValues {
-        it.value.toString()
-    }
+// discuz keeps login session in cookie named like "xxxx_2132_auth"
+private const val AUTH_COOKIE_SUFFIX = "_auth"
 
+fun getCookies(): Map<String, String> = CookieStore.getAll()
 
-fun setCookies(cookieUrl: String?) {
-    if (cookieUrl != null) {
-        val cookies = cookieUrl.split(";")
-            .dropLastWhile { it.isEmpty() }
-        val itemList = ArrayList<SharedPreferencesHelper.SpItem<*>>()
-        for (cookie in cookies) {
-            val cookiePair = cookie.split("=".toRegex(), 2).toTypedArray()
-            itemList.add(SharedPreferencesHelper.SpItem<String>(cookiePair[0], cookiePair[1]))
-        }
-        SharedPreferencesHelper.setPreferenceWithList(
-            SharedPreferencesHelper.getCookieSp(),
-            itemList
-        )
+/**
+ * @return value of the auth cookie, empty if user is not logged in
+ */
+fun getCookieIdentity(): String = getCookies()
+    .entries
+    .firstOrNull {
+        it.key.endsWith(AUTH_COOKIE_SUFFIX)
     }
+    ?.value
+    .orEmpty()
+
+/**
+ * @param cookieUrl cookie string from WebView, ex: "a=1; b=2"
+ */
+fun setCookies(cookieUrl: String?) {
+    CookieStore.syncFromWebView(cookieUrl)
 }
 
 fun setCookies(cookies: Map<String, String>) {
-    val itemList = ArrayList<SharedPreferencesHelper.SpItem<*>>()
-    cookies.keys.forEach {
-        itemList.add(SharedPreferencesHelper.SpItem<String>(it, cookies[it]))
-    }
-    SharedPreferencesHelper.setPreferenceWithList(
-        SharedPreferencesHelper.getCookieSp(),
-        itemList
-    )
+    CookieStore.put(cookies, syncToWebView = true)
 }
 
 fun clearCookies() {
-    SharedPreferencesHelper.getCookieSp().edit().clear().apply()
-    CookieManager.getInstance().removeAllCookies(null)
+    CookieStore.clear()
 }
\ No newline at end of file
@@ -0,0 +1,26 @@
+package top.easelink.lcg.utils
+
+/**
+ * Thread urls come in two forms:
+ * `thread-<tid>-<page>-<x>.html` and `forum.php?mod=viewthread&tid=<tid>&page=<page>`
+ */
+private val THREAD_ID_PATTERNS = listOf(
+    Regex("thread-(\\d+)-"),
+    Regex("tid=(\\d+)")
+)
+private val STATIC_PAGE_PATTERN = Regex("(thread-\\d+-)(\\d+)(-\\d+\\.html)")
+private val PAGE_PARAM_PATTERN = Regex("([?&]page=)(\\d+)")
+
+fun threadIdOf(url: String): Long? {
+    return THREAD_ID_PATTERNS.asSequence()
+        .mapNotNull { it.find(url)?.groupValues?.get(1)?.toLongOrNull() }
+        .firstOrNull()
+}
+
+/**
+ * @return page number in [url], 1 if there is none
+ */
+fun threadPageOf(url: String): Int {
+    val match = STATIC_PAGE_PATTERN.find(url) ?: PAGE_PARAM_PATTERN.find(url)
+    return match?.groupValues?.get(2)?.toIntOrNull() ?: 1
+}
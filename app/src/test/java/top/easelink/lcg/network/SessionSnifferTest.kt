@@ -0,0 +1,97 @@
+package top.easelink.lcg.network
+
+import org.jsoup.Jsoup
+import org.junit.Assert.*
+import org.junit.Test
+import top.easelink.lcg.parser.parseNotificationInfo
+import java.io.ByteArrayInputStream
+import java.io.FilterInputStream
+import java.io.InputStream
+import java.nio.charset.Charset
+
+class SessionSnifferTest {
+
+    private val gbk = Charset.forName("gbk")
+
+    private fun page(): ByteArray {
+        return javaClass.getResourceAsStream("/pages/session_header.html")!!.use { it.readBytes() }
+    }
+
+    @Test
+    fun findsFormHashAndPromptMenu() {
+        val sniffer = SessionSniffer(wantFormHash = true, wantPromptMenu = true)
+        sniffer.scan(ByteArrayInputStream(page()), gbk)
+
+        assertTrue(sniffer.isDone)
+        assertEquals("1a2b3c4d", sniffer.formHash)
+        val menu = Jsoup.parseBodyFragment(sniffer.promptMenu!!)
+        val info = parseNotificationInfo(menu)
+        assertEquals(1, info.message)
+        assertEquals(0, info.follower)
+        assertEquals(1, info.posts)
+        assertEquals(1, info.systemNotifications)
+        assertTrue(menu.getElementById("myprompt_menu")!!.text().contains("我的帖子"))
+    }
+
+    @Test
+    fun matchesAcrossReadsOfOneByte() {
+        val sniffer = SessionSniffer(wantFormHash = true, wantPromptMenu = true)
+        sniffer.scan(OneByteInputStream(ByteArrayInputStream(page())), gbk)
+
+        assertEquals("1a2b3c4d", sniffer.formHash)
+        assertNotNull(Jsoup.parseBodyFragment(sniffer.promptMenu!!).getElementById("myprompt_menu"))
+    }
+
+    @Test
+    fun matchesAttributesInAnyOrder() {
+        listOf(
+            """<input type="hidden" name="formhash" value="cafe0001" />""",
+            """<input value="cafe0001" type="hidden" name="formhash">""",
+            """<INPUT NAME='formhash' VALUE=cafe0001>"""
+        ).forEach { html ->
+            val sniffer = SessionSniffer(wantFormHash = true, wantPromptMenu = false)
+            sniffer.scan(ByteArrayInputStream(html.toByteArray(gbk)), gbk)
+            assertEquals(html, "cafe0001", sniffer.formHash)
+        }
+    }
+
+    @Test
+    fun skipsOtherInputsAndLinks() {
+        val html = """
+            <a href="member.php?mod=logging&amp;action=logout&amp;formhash=0f0f0f0f">out</a>
+            <input type="hidden" name="mod" value="search" />
+            <input type="text" name="formhash_x" value="nope" />
+            <input type="hidden" name="formhash" value="cafe0002" />
+        """.trimIndent()
+        val sniffer = SessionSniffer(wantFormHash = true, wantPromptMenu = false)
+        sniffer.scan(ByteArrayInputStream(html.toByteArray(gbk)), gbk)
+
+        assertEquals("cafe0002", sniffer.formHash)
+    }
+
+    @Test
+    fun passesStreamThroughUntouched() {
+        val bytes = page()
+        val sniffer = SessionSniffer(wantFormHash = true, wantPromptMenu = true)
+        val read = sniffer.wrap(ByteArrayInputStream(bytes), gbk).use { it.readBytes() }
+
+        assertArrayEquals(bytes, read)
+        assertEquals("1a2b3c4d", sniffer.formHash)
+    }
+
+    @Test
+    fun noPromptMenuWhenLoggedOut() {
+        val html = "<html><body><div id=\"toptb\"><a href=\"member.php?mod=register\">注册</a></div></body></html>"
+        val sniffer = SessionSniffer(wantFormHash = true, wantPromptMenu = true)
+        sniffer.scan(ByteArrayInputStream(html.toByteArray(gbk)), gbk)
+
+        assertNull(sniffer.formHash)
+        assertNull(sniffer.promptMenu)
+    }
+
+    private class OneByteInputStream(input: InputStream) : FilterInputStream(input) {
+        override fun read(b: ByteArray, off: Int, len: Int): Int {
+            return super.read(b, off, len.coerceAtMost(1))
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package top.easelink.lcg.ui.main.source.local
+
+import org.junit.Assert.*
+import org.junit.Test
+import top.easelink.lcg.ui.main.source.model.ArticleAbstractResponse
+import top.easelink.lcg.ui.main.source.model.ArticleDetail
+import top.easelink.lcg.ui.main.source.model.Post
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+
+class ArticleDetailCodecTest {
+
+    private fun roundTrip(detail: ArticleDetail): ArticleDetail {
+        val bytes = ByteArrayOutputStream().also {
+            DataOutputStream(it).use { out -> ArticleDetailCodec.write(out, detail) }
+        }.toByteArray()
+        return DataInputStream(ByteArrayInputStream(bytes)).use { ArticleDetailCodec.read(it) }
+    }
+
+    @Test
+    fun keepsEveryField() {
+        val detail = detailOf("安卓逆向入门", 3)
+
+        assertSameDetail(detail, roundTrip(detail))
+    }
+
+    @Test
+    fun keepsNulls() {
+        val detail = ArticleDetail(
+            articleTitle = "t",
+            postList = listOf(Post("a", "", "d", "c", null, null)),
+            nextPageUrl = "",
+            fromHash = null,
+            articleAbstractResponse = null
+        )
+        val read = roundTrip(detail)
+
+        assertSameDetail(detail, read)
+        assertNull(read.fromHash)
+        assertNull(read.articleAbstractResponse)
+        read.postList[0].apply {
+            assertNull(replyUrl)
+            assertNull(profileUrl)
+            assertNull(extraInfo)
+            assertNull(followInfo)
+        }
+    }
+
+    @Test
+    fun keepsContentOverWriteUtfLimit() {
+        // writeUTF stops at 64k bytes, a cjk char takes 3 of them
+        val content = "吾爱破解".repeat(20_000)
+        val detail = ArticleDetail(
+            "long",
+            listOf(Post("a", "", "d", content, null, null)),
+            "",
+            null,
+            null
+        )
+
+        assertEquals(content, roundTrip(detail).postList[0].content)
+    }
+
+    @Test
+    fun emptyPage() {
+        val detail = ArticleDetail("", emptyList(), "", null, null)
+
+        assertTrue(roundTrip(detail).postList.isEmpty())
+    }
+}
+
+internal fun detailOf(title: String, posts: Int): ArticleDetail {
+    return ArticleDetail(
+        articleTitle = title,
+        postList = List(posts) {
+            Post(
+                author = "user_00$it",
+                avatar = "https://avatar.52pojie.cn/data/avatar/000/10/00/0${it}_avatar_middle.jpg",
+                date = "发表于 2020-8-29 0$it:00",
+                content = "第 $it 楼<br><img src=\"https://attach.52pojie.cn/forum/202008/29/00000$it.png\">",
+                replyUrl = "forum.php?mod=post&action=reply&tid=1250000&repquote=$it",
+                replyAddUrl = "forum.php?mod=misc&action=postreview&do=support&pid=$it",
+                profileUrl = "home.php?mod=space&uid=10000$it",
+                extraInfo = "<dl class=\"pil cl\"><dt>吾爱币</dt><dd>$it CB</dd></dl>",
+                followInfo = if (it % 2 == 0) "收听TA" to "home.php?mod=spacecp&ac=follow&fuid=10000$it" else null
+            )
+        },
+        nextPageUrl = "thread-1250000-2-1.html",
+        fromHash = "00000000",
+        articleAbstractResponse = ArticleAbstractResponse().apply {
+            this.title = title
+            images = listOf("https://attach.52pojie.cn/forum/202008/29/000000.png")
+            description = "描述"
+        }
+    )
+}
+
+internal fun assertSameDetail(expected: ArticleDetail, actual: ArticleDetail) {
+    assertEquals(expected.articleTitle, actual.articleTitle)
+    assertEquals(expected.nextPageUrl, actual.nextPageUrl)
+    assertEquals(expected.fromHash, actual.fromHash)
+    assertEquals(expected.articleAbstractResponse?.title, actual.articleAbstractResponse?.title)
+    assertEquals(expected.articleAbstractResponse?.images, actual.articleAbstractResponse?.images)
+    assertEquals(
+        expected.articleAbstractResponse?.description,
+        actual.articleAbstractResponse?.description
+    )
+    assertEquals(expected.postList.size, actual.postList.size)
+    expected.postList.zip(actual.postList).forEach { (e, a) ->
+        assertEquals(e.author, a.author)
+        assertEquals(e.avatar, a.avatar)
+        assertEquals(e.date, a.date)
+        assertEquals(e.content, a.content)
+        assertEquals(e.replyUrl, a.replyUrl)
+        assertEquals(e.replyAddUrl, a.replyAddUrl)
+        assertEquals(e.profileUrl, a.profileUrl)
+        assertEquals(e.extraInfo, a.extraInfo)
+        assertEquals(e.followInfo, a.followInfo)
+    }
+}
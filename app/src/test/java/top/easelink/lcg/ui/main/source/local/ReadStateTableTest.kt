@@ -0,0 +1,177 @@
+package top.easelink.lcg.ui.main.source.local
+
+import org.junit.Assert.*
+import org.junit.Test
+import java.nio.ByteBuffer
+
+class ReadStateTableTest {
+
+    private var now = 0L
+    private val buffer = ByteBuffer.allocate(ReadStateTable.SIZE)
+    private val table = ReadStateTable(buffer) { now }
+
+    /**
+     * @return [count] thread ids probed from the same slot, [home] if it's given
+     */
+    private fun collidingTids(count: Int, home: Int? = null): List<Long> {
+        val bySlot = HashMap<Int, MutableList<Long>>()
+        var tid = 0L
+        while (true) {
+            tid++
+            val slot = ReadStateTable.homeOf(tid)
+            if (home != null && slot != home) {
+                continue
+            }
+            val tids = bySlot.getOrPut(slot) { ArrayList() }
+            tids.add(tid)
+            if (tids.size == count) {
+                return tids
+            }
+        }
+    }
+
+    @Test
+    fun emptyTable() {
+        assertEquals(0, table.size)
+        assertNull(table.get(1250000L))
+    }
+
+    @Test
+    fun readThreadWithoutReplies() {
+        now = 42L
+        table.markRead(1250000L, 3, 7)
+
+        table.get(1250000L)!!.apply {
+            assertEquals(3, page)
+            assertEquals(7, post)
+            assertEquals(ReadStateTable.UNKNOWN, replies)
+            assertFalse(hasReplies)
+            assertEquals(42L, time)
+        }
+    }
+
+    @Test
+    fun openedThenRead() {
+        table.markOpened(1250000L, 120)
+        table.get(1250000L)!!.apply {
+            assertEquals(1, page)
+            assertEquals(0, post)
+            assertEquals(120, replies)
+            assertTrue(hasReplies)
+        }
+
+        // reading keeps the replies, opening again keeps where it's read to
+        table.markRead(1250000L, 2, 5)
+        table.markOpened(1250000L, 130)
+        table.get(1250000L)!!.apply {
+            assertEquals(2, page)
+            assertEquals(5, post)
+            assertEquals(130, replies)
+        }
+        assertEquals(1, table.size)
+    }
+
+    @Test
+    fun packsFieldsIndependently() {
+        table.markOpened(1L, Int.MAX_VALUE)
+        table.markRead(1L, 0xffff, 0xffff)
+        table.get(1L)!!.apply {
+            assertEquals(0xffff, page)
+            assertEquals(0xffff, post)
+            assertEquals(Int.MAX_VALUE, replies)
+        }
+
+        // out of range pages and posts are clamped instead of spilling over
+        table.markRead(2L, 0x10001, -1)
+        table.get(2L)!!.apply {
+            assertEquals(0xffff, page)
+            assertEquals(0, post)
+            assertFalse(hasReplies)
+        }
+    }
+
+    @Test
+    fun ignoresInvalidTid() {
+        table.markRead(0L, 1, 1)
+        table.markOpened(-1L, 1)
+
+        assertEquals(0, table.size)
+        assertNull(table.get(0L))
+    }
+
+    @Test
+    fun probesPastCollisions() {
+        val tids = collidingTids(4)
+        tids.forEachIndexed { i, tid -> table.markRead(tid, i + 1, i) }
+        // updating one of them doesn't touch the others
+        table.markOpened(tids[1], 99)
+
+        tids.forEachIndexed { i, tid ->
+            assertEquals(i + 1, table.get(tid)!!.page)
+        }
+        assertEquals(99, table.get(tids[1])!!.replies)
+        assertFalse(table.get(tids[2])!!.hasReplies)
+        assertEquals(4, table.size)
+    }
+
+    @Test
+    fun probingWrapsAround() {
+        val tids = collidingTids(3, home = ReadStateTable.CAPACITY - 1)
+        tids.forEachIndexed { i, tid -> table.markRead(tid, i + 1, 0) }
+
+        tids.forEachIndexed { i, tid ->
+            assertEquals(i + 1, table.get(tid)!!.page)
+        }
+    }
+
+    @Test
+    fun dropsOlderHalfWhenFull() {
+        for (tid in 1L..ReadStateTable.MAX_LOAD) {
+            now = tid
+            table.markRead(tid, 1, 0)
+        }
+        assertEquals(ReadStateTable.MAX_LOAD, table.size)
+
+        now = ReadStateTable.MAX_LOAD + 1L
+        table.markRead(now, 1, 0)
+
+        assertEquals(ReadStateTable.CAPACITY / 2 + 1, table.size)
+        val dropped = ReadStateTable.MAX_LOAD - ReadStateTable.CAPACITY / 2
+        for (tid in 1L..ReadStateTable.MAX_LOAD + 1L) {
+            assertEquals("tid $tid", tid > dropped, table.get(tid) != null)
+        }
+        assertEquals(ReadStateTable.MAX_LOAD.toLong(), table.get(ReadStateTable.MAX_LOAD.toLong())!!.time)
+    }
+
+    @Test
+    fun updatingDoesNotCountTwice() {
+        repeat(ReadStateTable.MAX_LOAD * 2) {
+            table.markRead(1L, it % 100 + 1, 0)
+        }
+
+        assertEquals(1, table.size)
+    }
+
+    @Test
+    fun statesOutliveTheTable() {
+        table.markOpened(1250000L, 12)
+        table.markRead(1250001L, 4, 2)
+
+        val reopened = ReadStateTable(buffer) { now }
+        assertEquals(2, reopened.size)
+        assertEquals(12, reopened.get(1250000L)!!.replies)
+        assertEquals(4, reopened.get(1250001L)!!.page)
+    }
+
+    @Test
+    fun clearsUnknownBuffer() {
+        val junk = ByteBuffer.allocate(ReadStateTable.SIZE)
+        for (i in 0 until ReadStateTable.SIZE / 8) {
+            junk.putLong(i * 8, 0x0101010101010101L)
+        }
+        val cleared = ReadStateTable(junk)
+
+        assertEquals(0, cleared.size)
+        assertNull(cleared.get(0x0101010101010101L))
+    }
+}
@@ -0,0 +1,72 @@
+package top.easelink.lcg.ui.main.source.local
+
+import org.junit.Assert.*
+import org.junit.Test
+
+class SearchIndexTest {
+
+    private fun tokensOf(text: String) = SearchIndex.segment(text).split(' ').filter { it.isNotEmpty() }
+
+    @Test
+    fun segmentsCjkIntoBigrams() {
+        assertEquals(listOf("安卓", "卓逆", "逆向", "向"), tokensOf("安卓逆向"))
+        assertEquals(listOf("壳"), tokensOf("壳"))
+    }
+
+    @Test
+    fun segmentsMixedText() {
+        assertEquals(
+            listOf("android", "逆向", "向分", "分析", "析", "v2", "0"),
+            tokensOf("Android逆向分析 v2.0")
+        )
+        assertEquals(listOf("x86", "汇编", "编", "od"), tokensOf("x86汇编（OD）"))
+    }
+
+    @Test
+    fun segmentsKana() {
+        assertEquals(listOf("ひら", "らが", "がな", "な", "abc"), tokensOf("ひらがなABC"))
+    }
+
+    @Test
+    fun dropsSeparators() {
+        assertEquals("", SearchIndex.segment("，。！ - ... \n"))
+        assertEquals("", SearchIndex.segment(""))
+    }
+
+    @Test
+    fun matchesCjkWordAsPhrase() {
+        assertEquals("\"安卓 卓逆 逆向\"", SearchIndex.matchOf("安卓逆向"))
+        assertEquals("\"脱壳\"", SearchIndex.matchOf("脱壳"))
+    }
+
+    @Test
+    fun matchesOtherWordsAsPrefix() {
+        assertEquals("壳*", SearchIndex.matchOf("壳"))
+        assertEquals("android* \"脱壳\"", SearchIndex.matchOf("Android 脱壳"))
+        assertEquals("x86* \"汇编\"", SearchIndex.matchOf("x86汇编"))
+    }
+
+    @Test
+    fun nothingToMatch() {
+        assertNull(SearchIndex.matchOf(""))
+        assertNull(SearchIndex.matchOf("  ，。！*\"  "))
+    }
+
+    @Test
+    fun queryTermsAreTokensOfText() {
+        val tokens = tokensOf("吾爱破解论坛 Android逆向教程")
+        listOf("破解论坛", "论", "坛", "爱破", "andr", "逆向教程").forEach { keyword ->
+            SearchIndex.matchOf(keyword)!!
+                .split(' ')
+                .map { it.trim('"') }
+                .forEach { term ->
+                    val found = if (term.endsWith('*')) {
+                        tokens.any { it.startsWith(term.dropLast(1)) }
+                    } else {
+                        term in tokens
+                    }
+                    assertTrue("$keyword: $term", found)
+                }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package top.easelink.lcg.ui.main.source.local
+
+import org.junit.Assert.*
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.io.File
+import java.io.RandomAccessFile
+
+class ThreadArchiveTest {
+
+    @get:Rule
+    val folder = TemporaryFolder()
+
+    private val firstPage = "thread-1250000-1-1.html"
+    private val secondPage = "thread-1250000-2-1.html"
+
+    private fun archiveOf(vararg pages: Pair<String, Int>): File {
+        val file = File(folder.root, "1250000.archive")
+        ThreadArchive.Writer(file).apply {
+            pages.forEach { (query, posts) -> putPage(query, detailOf(query, posts)) }
+            putImage(IMAGE_URL, ByteArray(1024) { it.toByte() })
+            assertTrue(finish())
+        }
+        return file
+    }
+
+    @Test
+    fun readsPagesBack() {
+        val before = System.currentTimeMillis()
+        val file = archiveOf(firstPage to 20, secondPage to 3)
+        val archive = ThreadArchive.open(file)!!
+
+        assertSameDetail(detailOf(firstPage, 20), archive.page(firstPage)!!)
+        assertSameDetail(detailOf(secondPage, 3), archive.page(secondPage)!!)
+        assertNull(archive.page("thread-1250000-3-1.html"))
+        assertTrue(archive.savedAt in before..System.currentTimeMillis())
+        // pages are read as often as they're shown
+        assertSameDetail(detailOf(firstPage, 20), archive.page(firstPage)!!)
+    }
+
+    @Test
+    fun showsUpOnlyWhenFinished() {
+        val file = File(folder.root, "1.archive")
+        val writer = ThreadArchive.Writer(file)
+        writer.putPage(firstPage, detailOf(firstPage, 1))
+
+        assertFalse(file.exists())
+        assertNull(ThreadArchive.open(file))
+        writer.abort()
+        assertFalse(file.exists())
+        assertTrue(folder.root.listFiles()!!.isEmpty())
+    }
+
+    @Test
+    fun keepsFirstOfDuplicates() {
+        val file = File(folder.root, "1.archive")
+        ThreadArchive.Writer(file).apply {
+            putPage(firstPage, detailOf("first", 1))
+            putPage(firstPage, detailOf("second", 2))
+            assertTrue(finish())
+        }
+
+        assertSameDetail(detailOf("first", 1), ThreadArchive.open(file)!!.page(firstPage)!!)
+    }
+
+    @Test
+    fun dropsFileWhichIsNotAnArchive() {
+        val file = File(folder.root, "1.archive").apply { writeText("<html></html>") }
+
+        assertNull(ThreadArchive.open(file))
+        assertFalse(file.exists())
+    }
+
+    @Test
+    fun dropsTruncatedArchive() {
+        val file = archiveOf(firstPage to 5)
+        RandomAccessFile(file, "rw").use { it.setLength(it.length() / 2) }
+
+        assertNull(ThreadArchive.open(file))
+        assertFalse(file.exists())
+    }
+
+    @Test
+    fun brokenEntryDoesNotTakeOthers() {
+        val file = archiveOf(firstPage to 5, secondPage to 5)
+        // the image is indexed last, right after the length of the second page
+        RandomAccessFile(file, "rw").use {
+            it.seek(it.length() - indexEntrySize(IMAGE_KEY) - 4)
+            it.writeInt(Int.MAX_VALUE)
+        }
+        val archive = ThreadArchive.open(file)!!
+
+        assertNull(archive.page(secondPage))
+        assertSameDetail(detailOf(firstPage, 5), archive.page(firstPage)!!)
+    }
+
+    private fun indexEntrySize(key: String) = 4 + key.toByteArray().size + 4 + 4
+
+    companion object {
+        private const val IMAGE_URL = "https://attach.52pojie.cn/forum/202008/29/000000.png"
+        private const val IMAGE_KEY = "img:$IMAGE_URL"
+    }
+}
@@ -0,0 +1,35 @@
+package top.easelink.lcg.benchmark
+
+import org.jsoup.nodes.Document
+import org.openjdk.jmh.annotations.*
+import java.util.concurrent.TimeUnit
+
+/**
+ * Bytes -> Document of every captured page, the cost every parser pays before any selector runs
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+open class DocumentParseBenchmark {
+
+    @Param(
+        "forum_list",
+        "forum_list_guide",
+        "thread_long",
+        "rank",
+        "notification",
+        "follow_feed",
+        "search_baidu"
+    )
+    lateinit var fixture: String
+
+    private lateinit var bytes: ByteArray
+
+    @Setup
+    fun setUp() {
+        bytes = Fixtures.bytes(fixture)
+    }
+
+    @Benchmark
+    fun parse(): Document = Fixtures.parse(bytes)
+}
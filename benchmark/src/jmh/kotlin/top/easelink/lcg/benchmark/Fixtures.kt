@@ -0,0 +1,30 @@
+package top.easelink.lcg.benchmark
+
+import org.jsoup.Jsoup
+import org.jsoup.nodes.Document
+import java.io.ByteArrayInputStream
+
+/**
+ * Captured pages, see fixtures.txt and the captureFixtures task
+ */
+object Fixtures {
+
+    const val BASE_URL = "https://www.52pojie.cn/"
+
+    // the site is served in gbk, so are the captured pages
+    private const val CHARSET = "gbk"
+
+    fun bytes(name: String): ByteArray {
+        return Fixtures::class.java.getResourceAsStream("/fixtures/$name.html")
+            ?.use { it.readBytes() }
+            ?: throw IllegalStateException(
+                "fixture $name is missing, run ./gradlew :benchmark:captureFixtures first"
+            )
+    }
+
+    fun text(name: String): String = String(bytes(name), charset(CHARSET))
+
+    fun parse(bytes: ByteArray): Document {
+        return Jsoup.parse(ByteArrayInputStream(bytes), CHARSET, BASE_URL)
+    }
+}
@@ -0,0 +1,58 @@
+package top.easelink.lcg.benchmark
+
+import okhttp3.OkHttpClient
+import org.openjdk.jmh.annotations.*
+import top.easelink.lcg.replay.Corpus
+import top.easelink.lcg.replay.Shaping
+import java.io.File
+import java.util.concurrent.TimeUnit
+
+/**
+ * list -> thread -> next page against a local [ReplayServer], over real sockets,
+ * under a few network conditions. Record the corpus first with the recordFlow task.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+open class FlowBenchmark {
+
+    // wifi, good 4g, poor 3g
+    @Param("0", "50", "300")
+    var latencyMillis: Long = 0
+
+    @Param("0", "1048576", "65536")
+    var bytesPerSecond: Long = 0
+
+    private lateinit var server: ReplayServer
+    private lateinit var client: OkHttpClient
+    private lateinit var flow: ThreadFlow
+
+    @Setup
+    fun setUp() {
+        val dir = File(System.getProperty(CORPUS_PROPERTY) ?: "corpus")
+        if (!dir.isDirectory) {
+            throw IllegalStateException(
+                "corpus $dir is missing, run ./gradlew :benchmark:recordFlow first"
+            )
+        }
+        server = ReplayServer(Corpus(dir), Shaping(latencyMillis, bytesPerSecond)).start()
+        client = OkHttpClient.Builder()
+            .callTimeout(60, TimeUnit.SECONDS)
+            .build()
+        flow = ThreadFlow(client, server.baseUrl)
+    }
+
+    @TearDown
+    fun tearDown() {
+        server.close()
+        client.dispatcher.executorService.shutdown()
+        client.connectionPool.evictAll()
+    }
+
+    @Benchmark
+    fun listThreadNextPage(): Int = flow.run()
+
+    companion object {
+        const val CORPUS_PROPERTY = "lcg.corpus"
+    }
+}
@@ -0,0 +1,82 @@
+package top.easelink.lcg.benchmark
+
+import org.jsoup.nodes.Document
+import org.openjdk.jmh.annotations.*
+import top.easelink.lcg.parser.*
+import top.easelink.lcg.ui.main.discover.source.RankType
+import java.io.StringReader
+import java.util.concurrent.Executor
+import java.util.concurrent.TimeUnit
+
+/**
+ * Document -> models of every captured page, the Document is built fresh for each call
+ * since parsers rewrite it in place (content of posts, links of notifications).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+open class ParserBenchmark {
+
+    @Param(
+        "forum_list",
+        "forum_list_guide",
+        "thread_long",
+        "rank",
+        "notification",
+        "notification_info",
+        "search_baidu"
+    )
+    lateinit var fixture: String
+
+    private lateinit var bytes: ByteArray
+    private lateinit var doc: Document
+
+    @Setup(Level.Trial)
+    fun load() {
+        // unread counts are read from the prompt menu in the header of the notification page
+        bytes = Fixtures.bytes(if (fixture == "notification_info") "notification" else fixture)
+    }
+
+    @Setup(Level.Invocation)
+    fun parseDocument() {
+        doc = Fixtures.parse(bytes)
+    }
+
+    @Benchmark
+    fun extract(): Any? {
+        return when (fixture) {
+            "forum_list" -> parseForumPage(doc, true)
+            "forum_list_guide" -> parseGuideArticles(doc, true)
+            "thread_long" -> parseThreadPage(doc, CALLER_RUNS)
+            "rank" -> parseRankPage(doc, RankType.VIEW)
+            "notification" -> parseNotifications(doc)
+            "notification_info" -> parseNotificationInfo(doc)
+            "search_baidu" -> parseBaiduSearchResults(doc)
+            else -> throw IllegalArgumentException(fixture)
+        }
+    }
+
+    companion object {
+        // posts stay on the benchmark thread, so results don't depend on the core count of the box
+        private val CALLER_RUNS = Executor { it.run() }
+    }
+}
+
+/**
+ * The feed is an inajax response, its payload is unwrapped while it's parsed
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+open class FeedParserBenchmark {
+
+    private lateinit var xml: String
+
+    @Setup
+    fun load() {
+        xml = Fixtures.text("follow_feed")
+    }
+
+    @Benchmark
+    fun parse(): Any? = parseAjaxPayload(StringReader(xml), Fixtures.BASE_URL)?.let { parseFeeds(it) }
+}
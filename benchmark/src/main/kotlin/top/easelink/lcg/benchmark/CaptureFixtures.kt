@@ -0,0 +1,74 @@
+package top.easelink.lcg.benchmark
+
+import okhttp3.OkHttpClient
+import okhttp3.Request
+import org.jsoup.Jsoup
+import java.io.File
+import java.util.concurrent.TimeUnit
+
+private const val USER_AGENT =
+    "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/53.0.2785.143 Safari/537.36"
+private const val BASE_URL = "https://www.52pojie.cn/"
+private const val TOP_THREAD_PREFIX = "top:"
+
+// the site blocks clients which request too often
+private const val REQUEST_INTERVAL = 3000L
+
+/**
+ * Capture the pages listed in a fixture list, the raw bytes are saved as `<name>.html`.
+ *
+ * args: fixture list, output dir, cookie (optional)
+ */
+fun main(args: Array<String>) {
+    val list = File(args[0])
+    val outDir = File(args[1]).apply { mkdirs() }
+    val cookie = args.getOrNull(2).orEmpty()
+    val client = OkHttpClient.Builder()
+        .callTimeout(30, TimeUnit.SECONDS)
+        .build()
+
+    list.readLines()
+        .map { it.trim() }
+        .filter { it.isNotEmpty() && !it.startsWith("#") }
+        .forEach { line ->
+            val (name, source) = line.split(Regex("\\s+"), limit = 2)
+            val url = if (source.startsWith(TOP_THREAD_PREFIX)) {
+                topThreadOf(File(outDir, "${source.removePrefix(TOP_THREAD_PREFIX)}.html"))
+            } else {
+                source
+            }
+            if (url == null) {
+                println("skip $name, no thread found in $source")
+                return@forEach
+            }
+            val request = Request.Builder()
+                .url(url)
+                .header("User-Agent", USER_AGENT)
+                .apply {
+                    if (cookie.isNotEmpty()) header("Cookie", cookie)
+                }
+                .build()
+            client.newCall(request).execute().use { response ->
+                val bytes = response.body?.bytes() ?: ByteArray(0)
+                File(outDir, "$name.html").writeBytes(bytes)
+                println("$name <- $url: ${response.code}, ${bytes.size} bytes")
+            }
+            Thread.sleep(REQUEST_INTERVAL)
+        }
+}
+
+/**
+ * @return url of the thread with most replies in a captured list page
+ */
+private fun topThreadOf(listPage: File): String? {
+    if (!listPage.exists()) {
+        return null
+    }
+    return Jsoup.parse(listPage, null, BASE_URL)
+        .select("tbody[id^=normal]")
+        .maxByOrNull {
+            it.selectFirst("td.num a.xi2")?.text()?.toIntOrNull() ?: 0
+        }
+        ?.selectFirst("a.xst")
+        ?.absUrl("href")
+}
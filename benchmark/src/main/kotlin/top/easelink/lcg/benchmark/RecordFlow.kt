@@ -0,0 +1,24 @@
+package top.easelink.lcg.benchmark
+
+import okhttp3.OkHttpClient
+import top.easelink.lcg.replay.Corpus
+import top.easelink.lcg.replay.RecordingInterceptor
+import java.io.File
+import java.util.concurrent.TimeUnit
+
+private const val SITE_URL = "https://www.52pojie.cn/"
+
+/**
+ * Run [ThreadFlow] against the site once and record every response into a corpus
+ *
+ * args: corpus dir, forum list query (optional)
+ */
+fun main(args: Array<String>) {
+    val corpus = Corpus(File(args[0]))
+    val client = OkHttpClient.Builder()
+        .callTimeout(30, TimeUnit.SECONDS)
+        .addInterceptor(RecordingInterceptor(corpus))
+        .build()
+    val pages = ThreadFlow(client, SITE_URL, args.getOrNull(1) ?: ThreadFlow.LIST_QUERY).run()
+    println("recorded $pages pages into ${corpus.dir}")
+}
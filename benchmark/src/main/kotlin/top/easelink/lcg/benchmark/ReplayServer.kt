@@ -0,0 +1,88 @@
+package top.easelink.lcg.benchmark
+
+import com.sun.net.httpserver.HttpExchange
+import com.sun.net.httpserver.HttpServer
+import okio.buffer
+import okio.sink
+import top.easelink.lcg.replay.Corpus
+import top.easelink.lcg.replay.Shaping
+import java.io.Closeable
+import java.io.File
+import java.net.InetAddress
+import java.net.InetSocketAddress
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+
+/**
+ * Local stand-in of the site, serves a recorded [Corpus] over http with [shaping] applied.
+ * Any host works, requests are matched by path and query only.
+ */
+class ReplayServer(
+    private val corpus: Corpus,
+    private val shaping: Shaping = Shaping.NONE,
+    port: Int = 0
+) : Closeable {
+
+    private val executor: ExecutorService = Executors.newCachedThreadPool()
+    private val server: HttpServer = HttpServer.create(
+        InetSocketAddress(InetAddress.getLoopbackAddress(), port),
+        0
+    )
+
+    val baseUrl: String
+        get() = "http://${server.address.hostString}:${server.address.port}/"
+
+    init {
+        server.executor = executor
+        server.createContext("/") { exchange ->
+            try {
+                serve(exchange)
+            } finally {
+                exchange.close()
+            }
+        }
+    }
+
+    fun start(): ReplayServer = apply { server.start() }
+
+    private fun serve(exchange: HttpExchange) {
+        val method = exchange.requestMethod
+        val body = exchange.requestBody.readBytes().takeIf { method != "GET" && method != "HEAD" }
+        val recording = corpus.find(Corpus.keyOf(method, exchange.requestURI.rawTarget(), body))
+        if (recording == null) {
+            exchange.sendResponseHeaders(404, -1)
+            return
+        }
+        recording.headers.forEach { (name, value) ->
+            exchange.responseHeaders.add(name, value)
+        }
+        shaping.awaitFirstByte()
+        exchange.sendResponseHeaders(recording.code, recording.body.size.toLong().takeIf { it > 0 } ?: -1)
+        exchange.responseBody.sink().buffer().use { sink ->
+            sink.writeAll(shaping.source(recording.body))
+        }
+    }
+
+    override fun close() {
+        server.stop(0)
+        executor.shutdownNow()
+    }
+}
+
+private fun java.net.URI.rawTarget(): String {
+    return rawQuery?.let { "$rawPath?$it" } ?: rawPath
+}
+
+/**
+ * Serve a corpus until killed
+ *
+ * args: corpus dir, port, latency in ms (optional), bandwidth in bytes/s (optional)
+ */
+fun main(args: Array<String>) {
+    val shaping = Shaping(
+        latencyMillis = args.getOrNull(2)?.toLong() ?: 0,
+        bytesPerSecond = args.getOrNull(3)?.toLong() ?: 0
+    )
+    val server = ReplayServer(Corpus(File(args[0])), shaping, args[1].toInt()).start()
+    println("serving ${args[0]} at ${server.baseUrl}, $shaping")
+}
@@ -0,0 +1,56 @@
+package top.easelink.lcg.benchmark
+
+import okhttp3.OkHttpClient
+import okhttp3.Request
+import org.jsoup.Jsoup
+import org.jsoup.nodes.Document
+import top.easelink.lcg.parser.parseForumPage
+import top.easelink.lcg.parser.parseThreadPage
+import java.util.concurrent.Executor
+
+/**
+ * What a reader does most: open a forum list, open its first thread, then the next page of it.
+ * Pages are downloaded and parsed one after another like the app does, so the time of [run]
+ * is the latency the user waits for.
+ */
+class ThreadFlow(
+    private val client: OkHttpClient,
+    private val baseUrl: String,
+    private val listQuery: String = LIST_QUERY
+) {
+
+    /**
+     * @return pages loaded
+     */
+    fun run(): Int {
+        val list = parseForumPage(get(listQuery), false)
+            ?: throw IllegalStateException("no forum page at $listQuery")
+        val threadUrl = list.articleList.firstOrNull()?.url
+            ?: throw IllegalStateException("no thread in $listQuery")
+        val thread = parseThreadPage(get(threadUrl), CALLER_RUNS)
+        if (thread.nextPageUrl.isEmpty()) {
+            return 2
+        }
+        parseThreadPage(get(thread.nextPageUrl), CALLER_RUNS)
+        return 3
+    }
+
+    private fun get(query: String): Document {
+        val url = "$baseUrl$query"
+        val request = Request.Builder().url(url).header("User-Agent", USER_AGENT).build()
+        return client.newCall(request).execute().use { response ->
+            val body = response.body ?: throw IllegalStateException("empty response of $url")
+            Jsoup.parse(body.byteStream(), body.contentType()?.charset()?.name() ?: CHARSET, url)
+        }
+    }
+
+    companion object {
+        const val LIST_QUERY = "forum-16-1.html"
+        const val USER_AGENT =
+            "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/53.0.2785.143 Safari/537.36"
+
+        // the site is served in gbk
+        private const val CHARSET = "gbk"
+        private val CALLER_RUNS = Executor { it.run() }
+    }
+}
@@ -13,9 +13,13 @@ import kotlinx.coroutines.GlobalScope
 import kotlinx.coroutines.launch
 import top.easelink.framework.threadpool.IOPool
 
+/**
+ * @param localImage a local copy of the image at url, ex: a bitmap, it's called on a worker thread
+ */
 class HtmlCoilImageGetter(
     private val context: Context,
-    private val textView: TextView
+    private val textView: TextView,
+    private val localImage: (String) -> Any? = { null }
 ) : Html.ImageGetter {
 
     override fun getDrawable(url: String): Drawable {
@@ -23,7 +27,7 @@ class HtmlCoilImageGetter(
         GlobalScope.launch(IOPool) {
             Coil.imageLoader(context).enqueue(
                 ImageRequest.Builder(context)
-                    .data(url)
+                    .data(localImage(url) ?: url)
                     .target {
                         holder.setDrawable(it)
                     }
@@ -0,0 +1,131 @@
+package top.easelink.framework.recyclerview
+
+import android.os.Handler
+import android.os.Looper
+import android.os.SystemClock
+import androidx.annotation.MainThread
+import androidx.recyclerview.widget.RecyclerView
+
+/**
+ * Loads next page before user reaches the end of a list.
+ *
+ * Once the last visible item is within [prefetchDistance] items from the end, [loader] is called
+ * and it must call `done` with whether the page is loaded, from any thread.
+ * Only one load runs at a time, triggers while loading are dropped.
+ * A failed load is retried by the next trigger after [retryInterval],
+ * so a broken page isn't requested again on every scroll event.
+ */
+class LoadMoreController(
+    prefetchDistance: Int = DEFAULT_PREFETCH_DISTANCE,
+    private val hasMore: () -> Boolean = { true },
+    private val loader: (done: (Boolean) -> Unit) -> Unit
+) {
+
+    var prefetchDistance: Int = prefetchDistance
+        set(value) {
+            field = value.coerceAtLeast(0)
+        }
+
+    var retryInterval: Long = DEFAULT_RETRY_INTERVAL
+
+    /**
+     * Called on main thread once a load starts, and once it ends whether it succeeded or not,
+     * e.g. to show a progress bar in the footer
+     */
+    var onLoadingChanged: ((loading: Boolean) -> Unit)? = null
+
+    val isLoading: Boolean
+        get() = loading
+
+    private val handler = Handler(Looper.getMainLooper())
+    private var recyclerView: RecyclerView? = null
+    private var loading = false
+    private var lastFailure = 0L
+    // bumped by reset(), results of earlier loads are dropped
+    private var generation = 0
+
+    private val scrollListener = object : RecyclerView.OnScrollListener() {
+        override fun onScrolled(recyclerView: RecyclerView, dx: Int, dy: Int) {
+            // dy is 0 when visible range changes after layout, e.g. first page is shorter than screen
+            if (dy >= 0) {
+                checkDistance(recyclerView)
+            }
+        }
+    }
+
+    @MainThread
+    fun attach(recyclerView: RecyclerView) {
+        detach()
+        this.recyclerView = recyclerView
+        recyclerView.addOnScrollListener(scrollListener)
+    }
+
+    @MainThread
+    fun detach() {
+        recyclerView?.removeOnScrollListener(scrollListener)
+        recyclerView = null
+    }
+
+    /**
+     * Load next page now, e.g. footer of list is shown
+     */
+    @MainThread
+    fun loadMore() {
+        if (loading || !hasMore()) {
+            return
+        }
+        if (lastFailure > 0 && SystemClock.uptimeMillis() - lastFailure < retryInterval) {
+            return
+        }
+        loading = true
+        onLoadingChanged?.invoke(true)
+        val current = generation
+        // triggered from scroll or bind callbacks, adapter can't be changed until they return
+        handler.post {
+            if (current != generation) {
+                return@post
+            }
+            loader { success ->
+                handler.post {
+                    onLoaded(current, success)
+                }
+            }
+        }
+    }
+
+    /**
+     * Forget running load and failures, call it when list is refreshed from the first page
+     */
+    @MainThread
+    fun reset() {
+        generation++
+        lastFailure = 0L
+        if (loading) {
+            loading = false
+            onLoadingChanged?.invoke(false)
+        }
+    }
+
+    private fun onLoaded(loadGeneration: Int, success: Boolean) {
+        if (loadGeneration != generation || !loading) {
+            return
+        }
+        loading = false
+        lastFailure = if (success) 0L else SystemClock.uptimeMillis()
+        onLoadingChanged?.invoke(false)
+    }
+
+    private fun checkDistance(recyclerView: RecyclerView) {
+        val layoutManager = recyclerView.layoutManager ?: return
+        val lastChild = layoutManager.getChildAt(layoutManager.childCount - 1) ?: return
+        val lastVisible = layoutManager.getPosition(lastChild)
+        if (lastVisible >= layoutManager.itemCount - 1 - prefetchDistance) {
+            loadMore()
+        }
+    }
+
+    companion object {
+        const val DEFAULT_PREFETCH_DISTANCE = 5
+        const val DEFAULT_RETRY_INTERVAL = 3000L
+    }
+}
@@ -11,6 +11,8 @@ val ImmediatePool by lazy { ELDispacher(ELThreadPoolProvider.IMMEDIATE_EXECUTORS
 val CalcPool by lazy { ELDispacher(ELThreadPoolProvider.COMMON_EXECUTOR) }
 val BackGroundPool by lazy { ELDispacher(ELThreadPoolProvider.BACKGROUND_EXECUTOR) }
 val IOPool by lazy { ELDispacher(ELThreadPoolProvider.API_EXECUTOR) }
+val ParsePool by lazy { ELDispacher(ELThreadPoolProvider.PARSE_EXECUTOR) }
+val PrefetchPool by lazy { ELDispacher(ELThreadPoolProvider.PREFETCH_EXECUTOR) }
 
 private fun Looper.asHandler(async: Boolean): Handler {
     // Async support was added since API 16
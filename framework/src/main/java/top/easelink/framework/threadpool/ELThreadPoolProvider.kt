@@ -38,8 +38,23 @@ object ELThreadPoolProvider {
         ElThreadFactory("EL-common", ELThreadPriority.NORMAL)
     )
 
+    // parsing and model building, one thread per core so it never competes with api threads
+    val PARSE_EXECUTOR = ELThreadPoolExecutor(
+        CPU_COUNT,
+        CPU_COUNT,
+        KEEP_ALIVE_SECONDS,
+        TimeUnit.SECONDS,
+        LinkedBlockingQueue<Runnable>(),
+        ElThreadFactory("EL-parse", ELThreadPriority.NORMAL)
+    )
+
     val BACKGROUND_EXECUTOR: ExecutorService =
         Executors.newSingleThreadExecutor(
             ElThreadFactory("EL-background", ELThreadPriority.LOW)
         )
+
+    val PREFETCH_EXECUTOR: ExecutorService =
+        Executors.newSingleThreadExecutor(
+            ElThreadFactory("EL-prefetch", ELThreadPriority.LOW)
+        )
 }
\ No newline at end of file
@@ -4,6 +4,8 @@ import android.content.Context;
 import android.net.ConnectivityManager;
 import android.net.NetworkInfo;
 
+import androidx.core.net.ConnectivityManagerCompat;
+
 public final class NetworkUtils {
 
     private NetworkUtils() {
@@ -18,4 +20,10 @@ public final class NetworkUtils {
         }
         return false;
     }
+
+    public static boolean isNetworkMetered(Context context) {
+        ConnectivityManager cm = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        // treat unknown as metered
+        return cm == null || ConnectivityManagerCompat.isActiveNetworkMetered(cm);
+    }
 }
@@ -0,0 +1,150 @@
+package top.easelink.lcg.parser
+
+import org.jsoup.nodes.Document
+import org.jsoup.parser.Parser
+import java.io.Reader
+
+/**
+ * Reads the payload of a Discuz inajax response out of its envelope, as a stream:
+ * `<?xml ...?><root><![CDATA[ payload ]]></root>`
+ *
+ * Everything before `<![CDATA[` is skipped, reading ends at `]]>`, so the payload can be
+ * fed to the tree builder without being copied into a String first.
+ * A response without CDATA has an empty payload.
+ */
+class AjaxPayloadReader(private val input: Reader) : Reader() {
+
+    private val buffer = CharArray(BUFFER_SIZE)
+    private var pos = 0
+    private var limit = 0
+    private var eof = false
+    private var opened = false
+    private var ended = false
+
+    /**
+     * Discuz answers `false` instead of a page when there's nothing (more) to show
+     */
+    fun isFalse(): Boolean {
+        open()
+        while (!eof && limit - pos < FALSE_PAYLOAD.length + CDATA_END.length) {
+            fill()
+        }
+        if (!startsWith(FALSE_PAYLOAD, pos)) {
+            return false
+        }
+        val end = pos + FALSE_PAYLOAD.length
+        return end == limit || startsWith(CDATA_END, end)
+    }
+
+    override fun read(cbuf: CharArray, off: Int, len: Int): Int {
+        open()
+        while (!ended) {
+            // keep enough chars ahead to tell a "]]>"
+            while (!eof && limit - pos < CDATA_END.length) {
+                fill()
+            }
+            if (pos == limit) {
+                // no terminator, the payload runs to the end
+                ended = true
+                break
+            }
+            var n = 0
+            while (n < len && pos < limit) {
+                if (buffer[pos] == ']' && limit - pos < CDATA_END.length && !eof) {
+                    break
+                }
+                if (startsWith(CDATA_END, pos)) {
+                    ended = true
+                    break
+                }
+                cbuf[off + n++] = buffer[pos++]
+            }
+            if (n > 0) {
+                return n
+            }
+        }
+        return -1
+    }
+
+    override fun close() {
+        input.close()
+    }
+
+    private fun open() {
+        if (opened) {
+            return
+        }
+        opened = true
+        var matched = 0
+        while (true) {
+            if (pos == limit && !fill()) {
+                ended = true
+                return
+            }
+            val c = buffer[pos++]
+            matched = when {
+                c == CDATA_START[matched] -> matched + 1
+                c == CDATA_START[0] -> 1
+                else -> 0
+            }
+            if (matched == CDATA_START.length) {
+                return
+            }
+        }
+    }
+
+    /**
+     * Move unread chars to the front and read more behind them
+     *
+     * @return false at the end of input
+     */
+    private fun fill(): Boolean {
+        if (eof) {
+            return false
+        }
+        if (pos > 0) {
+            System.arraycopy(buffer, pos, buffer, 0, limit - pos)
+            limit -= pos
+            pos = 0
+        }
+        val read = input.read(buffer, limit, buffer.size - limit)
+        if (read < 0) {
+            eof = true
+            return false
+        }
+        limit += read
+        return true
+    }
+
+    private fun startsWith(s: String, from: Int): Boolean {
+        if (limit - from < s.length) {
+            return false
+        }
+        for (i in s.indices) {
+            if (buffer[from + i] != s[i]) {
+                return false
+            }
+        }
+        return true
+    }
+
+    companion object {
+        private const val BUFFER_SIZE = 8192
+        private const val CDATA_START = "<![CDATA["
+        private const val CDATA_END = "]]>"
+        private const val FALSE_PAYLOAD = "false"
+    }
+}
+
+/**
+ * Parse the payload of an inajax response
+ *
+ * @return null if the payload is `false`
+ */
+fun parseAjaxPayload(input: Reader, baseUri: String): Document? {
+    val payload = AjaxPayloadReader(input)
+    if (payload.isFalse()) {
+        return null
+    }
+    return Parser.htmlParser().parseInput(payload, baseUri)
+}
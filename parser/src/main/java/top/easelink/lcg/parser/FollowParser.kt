@@ -0,0 +1,78 @@
+package top.easelink.lcg.parser
+
+import org.jsoup.nodes.Document
+import top.easelink.lcg.parser.Selectors.Follow
+import top.easelink.lcg.ui.main.follow.model.FeedInfo
+import top.easelink.lcg.ui.main.follow.model.FollowInfo
+import top.easelink.lcg.ui.main.follow.model.FollowResult
+
+fun parseFollows(doc: Document): FollowResult {
+    doc.apply {
+        val followInfos = all(Follow.ITEM).map {
+            val avatarUrl = it.first(Selectors.IMG)?.attr("src").orEmpty()
+            val username = it.getElementById("edit_avt")?.attr("title").orEmpty()
+            val lastAction = it.first(Follow.LAST_ACTION)!!.text()
+            val url = it.first(Follow.FOLLOW_MOD)?.text().orEmpty()
+            var following: Int = 0
+            var follower: Int = 0
+            it.all(Follow.COUNT).let { e ->
+                if (e.size == 2) {
+                    follower = e[0].text().toInt()
+                    following = e[1].text().toInt()
+                }
+            }
+            FollowInfo(
+                avatar = avatarUrl,
+                lastAction = lastAction,
+                username = username,
+                followerNum = follower,
+                followingNum = following,
+                followOrUnFollowUrl = url
+            )
+        }
+        val nextPageUrl = first(Selectors.NEXT_PAGE)?.attr("href")
+        return FollowResult(followInfos, nextPageUrl)
+    }
+}
+
+/**
+ * @param doc payload of the inajax feed response, see [parseAjaxPayload]
+ */
+fun parseFeeds(doc: Document): List<FeedInfo> {
+    return doc.select("li.cl").map {
+        val avatarUrl = it.selectFirst("a.z > img")?.attr("src").orEmpty()
+        var username = ""
+        var dateTime = ""
+        it.selectFirst("div.flw_author")?.let { author ->
+            username = author.selectFirst("a")?.text().orEmpty()
+            dateTime = author.selectFirst("span")?.text().orEmpty()
+        }
+        val title = it.selectFirst("h2").text()
+        val articleUrl = it.selectFirst("h2 > a").attr("href")
+        val followImages = it.getElementsByClass("flw_image")
+            ?.select("ul > li")
+            ?.map { li ->
+                li.selectFirst("img").attr("src")
+            }
+        val content = it.selectFirst(".pbm").let { pbm ->
+            pbm.select("div.flw_image")?.remove() // 标题带的图片单独处理，此处删除
+            pbm.select("img")?.remove() // 删除所有图片
+            pbm.select("a.flw_readfull")?.remove() // 删除查看全文链接
+            pbm.html()
+        }
+        // TODO add reply and relay
+        val forum = it.selectFirst("div.xg1 > a ").text()
+        val quote = it.selectFirst("div.flw_quotenote")?.text().orEmpty()
+        FeedInfo(
+            avatar = avatarUrl,
+            username = username,
+            dateTime = dateTime,
+            title = title,
+            articleUrl = articleUrl,
+            content = content,
+            forum = forum,
+            quote = quote,
+            images = followImages
+        )
+    }
+}
@@ -0,0 +1,61 @@
+package top.easelink.lcg.parser
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executor
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicReference
+import kotlin.math.min
+
+private val CPU_COUNT = Runtime.getRuntime().availableProcessors()
+
+/**
+ * Map items on [executor] and the calling thread together, results keep the order of the list.
+ *
+ * Items are claimed one by one by whichever worker is free, so a few large items don't leave
+ * the others idle. The calling thread works too and only waits for items taken by others,
+ * never for a task still queued, so it's safe to call from a thread of [executor] itself.
+ * The first exception thrown by [transform] is rethrown once all started items finish.
+ */
+fun <T, R> List<T>.forkJoinMapIndexed(
+    executor: Executor,
+    parallelism: Int = CPU_COUNT,
+    transform: (index: Int, T) -> R
+): List<R> {
+    if (size < 2 || parallelism < 2) {
+        return mapIndexed(transform)
+    }
+    val results = arrayOfNulls<Any?>(size)
+    val next = AtomicInteger(0)
+    val remaining = CountDownLatch(size)
+    val failure = AtomicReference<Throwable?>()
+    val work = Runnable {
+        while (true) {
+            val i = next.getAndIncrement()
+            if (i >= size) {
+                break
+            }
+            try {
+                if (failure.get() == null) {
+                    results[i] = transform(i, this[i])
+                }
+            } catch (t: Throwable) {
+                failure.compareAndSet(null, t)
+            } finally {
+                remaining.countDown()
+            }
+        }
+    }
+    repeat(min(parallelism, size) - 1) {
+        try {
+            executor.execute(work)
+        } catch (e: RejectedExecutionException) {
+            // the calling thread does the rest
+        }
+    }
+    work.run()
+    remaining.await()
+    failure.get()?.let { throw it }
+    @Suppress("UNCHECKED_CAST")
+    return results.asList() as List<R>
+}
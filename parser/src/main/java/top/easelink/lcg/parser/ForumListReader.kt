@@ -0,0 +1,213 @@
+package top.easelink.lcg.parser
+
+import java.io.Reader
+
+/**
+ * Tokenizer of forum list pages, only the parts list parsers use are kept:
+ * thread rows (tbody#normal*), #thread_types and #messagelogin.
+ *
+ * Everything else is dropped without building nodes and reading stops once the thread table
+ * is closed. A page without thread rows (e.g. login required) is read to the end.
+ */
+class ForumListReader(private val reader: Reader) {
+
+    private val buffer = CharArray(BUFFER_SIZE)
+    private var pos = 0
+    private var limit = 0
+
+    // raw html of the tag being captured, every char read is appended to it
+    private var capture: StringBuilder? = null
+    private var captureTag = ""
+    private var captureDepth = 0
+    private var target: StringBuilder? = null
+
+    private val rows = StringBuilder()
+    private val others = StringBuilder()
+    private var rowCount = 0
+    private var finished = false
+
+    /**
+     * @return html holding only the captured parts, rows are wrapped by a table
+     */
+    fun read(): String {
+        while (!finished) {
+            val c = next()
+            if (c == EOF) {
+                break
+            }
+            if (c == '<'.toInt()) {
+                readMarkup()
+            }
+        }
+        return buildString(rows.length + others.length + 16) {
+            append("<table>").append(rows).append("</table>").append(others)
+        }
+    }
+
+    private fun readMarkup() {
+        val c = next()
+        when {
+            c == '!'.toInt() -> skipDeclaration()
+            c == '/'.toInt() -> readEndTag()
+            isLetter(c) -> readStartTag(c)
+        }
+    }
+
+    private fun readStartTag(first: Int) {
+        val tag = StringBuilder().append(first.toChar())
+        var quote = 0
+        while (true) {
+            val c = next()
+            if (c == EOF) {
+                finished = true
+                return
+            }
+            if (quote != 0) {
+                if (c == quote) quote = 0
+            } else if (c == '"'.toInt() || c == '\''.toInt()) {
+                quote = c
+            } else if (c == '>'.toInt()) {
+                break
+            }
+            tag.append(c.toChar())
+        }
+        val name = tagName(tag)
+        onStartTag(name, tag)
+        if (name == "script" || name == "style") {
+            // raw text, a "</table>" in there doesn't close anything
+            skipUntil("</$name")
+            skipUntil(">")
+            onEndTag(name)
+        }
+    }
+
+    private fun onStartTag(name: String, tag: CharSequence) {
+        capture?.let {
+            if (name == captureTag) {
+                captureDepth++
+            }
+            return
+        }
+        val id = ID.find(tag)?.groupValues?.get(1).orEmpty()
+        when {
+            name == "tbody" && id.startsWith("normal") -> {
+                rowCount++
+                startCapture(name, tag, rows)
+            }
+            id in WANTED_IDS -> startCapture(name, tag, others)
+        }
+    }
+
+    private fun onEndTag(name: String) {
+        val current = capture
+        if (current != null) {
+            if (name == captureTag && --captureDepth == 0) {
+                capture = null
+                target?.append(current)
+            }
+        } else if (name == "table" && rowCount > 0) {
+            finished = true
+        }
+    }
+
+    private fun startCapture(name: String, tag: CharSequence, to: StringBuilder) {
+        capture = StringBuilder().append('<').append(tag).append('>')
+        captureTag = name
+        captureDepth = 1
+        target = to
+    }
+
+    private fun skipDeclaration() {
+        val c = next()
+        if (c == '-'.toInt() && next() == '-'.toInt()) {
+            skipComment()
+        } else if (c != '>'.toInt()) {
+            skipUntil(">")
+        }
+    }
+
+    private fun skipComment() {
+        var dashes = 0
+        while (true) {
+            val c = next()
+            if (c == EOF) {
+                finished = true
+                return
+            }
+            if (c == '>'.toInt() && dashes >= 2) {
+                return
+            }
+            dashes = if (c == '-'.toInt()) dashes + 1 else 0
+        }
+    }
+
+    /**
+     * Skip chars till [terminator] is read, case-insensitive.
+     * It's fine to restart from its first char on mismatch, as long as that char isn't repeated.
+     */
+    private fun skipUntil(terminator: String) {
+        var matched = 0
+        while (matched < terminator.length) {
+            val c = next()
+            if (c == EOF) {
+                finished = true
+                return
+            }
+            matched = when {
+                Character.toLowerCase(c) == terminator[matched].toInt() -> matched + 1
+                c == terminator[0].toInt() -> 1
+                else -> 0
+            }
+        }
+    }
+
+    private fun readEndTag() {
+        val name = StringBuilder()
+        var c = next()
+        while (c != EOF && Character.isLetterOrDigit(c)) {
+            name.append(Character.toLowerCase(c).toChar())
+            c = next()
+        }
+        if (c == EOF) {
+            finished = true
+            return
+        }
+        if (c != '>'.toInt()) {
+            skipUntil(">")
+        }
+        if (name.isNotEmpty()) {
+            onEndTag(name.toString())
+        }
+    }
+
+    private fun tagName(tag: CharSequence): String {
+        var end = 0
+        while (end < tag.length && Character.isLetterOrDigit(tag[end])) {
+            end++
+        }
+        return tag.substring(0, end).toLowerCase()
+    }
+
+    private fun isLetter(c: Int) = c != EOF && Character.isLetter(c)
+
+    private fun next(): Int {
+        if (pos == limit) {
+            limit = reader.read(buffer, 0, buffer.size)
+            pos = 0
+            if (limit <= 0) {
+                limit = 0
+                return EOF
+            }
+        }
+        val c = buffer[pos++]
+        capture?.append(c)
+        return c.toInt()
+    }
+
+    companion object {
+        private const val EOF = -1
+        private const val BUFFER_SIZE = 8192
+        private val WANTED_IDS = setOf("thread_types", "messagelogin")
+        private val ID = Regex("(?:^|\\s)id\\s*=\\s*[\"']?([^\"'\\s>]*)", RegexOption.IGNORE_CASE)
+    }
+}
@@ -0,0 +1,181 @@
+package top.easelink.lcg.parser
+
+import org.jsoup.nodes.Document
+import org.jsoup.nodes.Element
+import org.jsoup.select.Evaluator
+import top.easelink.lcg.parser.Selectors.ForumList
+import top.easelink.lcg.ui.main.model.LoginRequiredException
+import top.easelink.lcg.ui.main.source.model.Article
+import top.easelink.lcg.ui.main.source.model.ForumPage
+import top.easelink.lcg.ui.main.source.model.ForumThread
+
+private const val HOT_PATTERN = "热度"
+private const val RECOMMENDED_PATTERN = "评价指数"
+private const val HOT_LIMIT = 100
+private const val RECOMMENDED_LIMIT = 10
+
+/**
+ * Threads and sub forums (thread types) of a forum page
+ */
+@Throws(LoginRequiredException::class)
+fun parseForumPage(doc: Document, processThreadList: Boolean): ForumPage? {
+    try {
+        var elements = doc.all(ForumList.ROW)
+        if (elements.isEmpty()) {
+            val element = doc.getElementById("messagelogin")
+            if (element != null) {
+                throw LoginRequiredException()
+            }
+        }
+        val articleList: List<Article> = elements.mapNotNull { element ->
+            var article: Article? = null
+            try {
+                val numCell = element.first(ForumList.NUM_CELL)
+                val reply = extractFrom(numCell, ForumList.REPLY_COUNT).toInt()
+                val view = extractFrom(numCell, ForumList.VIEW_COUNT).toInt()
+                // new threads are titled in th.new, others in th.common
+                val titleCell = element.first(ForumList.TITLE_CELL_NEW)
+                    ?.takeIf { it.first(ForumList.TITLE) != null }
+                    ?: element.first(ForumList.TITLE_CELL)
+                val title = extractFrom(titleCell, ForumList.TITLE)
+                val byCell = element.first(ForumList.BY_CELL)
+                val author = extractFrom(byCell, ForumList.AUTHOR)
+                val date = extractFrom(byCell, ForumList.DATE)
+                val url = extractAttrFrom(titleCell, "href", ForumList.TITLE_LINK)
+                val origin = extractFrom(byCell, ForumList.ORIGIN)
+                if (title.isNotEmpty() && author.isNotEmpty()) {
+                    article = Article(title, author, date, url, view, reply, origin)
+                }
+            } catch (nbe: NumberFormatException) {
+                // rows without counts, e.g. moved threads
+            } catch (e: Exception) {
+                ParseLog.log(e)
+            }
+            article
+        }
+
+        // for thread part
+        var threadList: List<ForumThread>? = null
+        if (processThreadList) {
+            doc.getElementById("thread_types")?.let { threadTypes ->
+                threadList = threadTypes
+                    .getElementsByTag("li")
+                    .mapNotNull { elementByTag ->
+                        try {
+                            val element = elementByTag.getElementsByTag("a").first()
+                            elements = element.getElementsByTag("span")
+                            if (elements.size > 0) {
+                                elements.remove()
+                            }
+                            val threadUrl = element.attr("href")
+                            val name = element.text().trim { it <= ' ' }
+                            if (name.isNotEmpty() && threadUrl.isNotEmpty()) {
+                                return@mapNotNull ForumThread(name, threadUrl)
+                            }
+                        } catch (e: Exception) { // don't care
+                        }
+                        null
+                    }
+            }
+        }
+        return ForumPage(articleList, threadList ?: emptyList())
+    } catch (e: LoginRequiredException) {
+        throw e
+    } catch (e: Exception) {
+        ParseLog.log(e)
+        return null
+    }
+}
+
+/**
+ * Threads of a guide page (hot / new / digest ...)
+ *
+ * @param showRecommendFlag whether to mark threads that are hot or well rated
+ */
+fun parseGuideArticles(doc: Document, showRecommendFlag: Boolean): List<Article> {
+    return doc
+        .all(ForumList.ROW)
+        .mapNotNull { e ->
+            try {
+                parseGuideRow(e, showRecommendFlag)
+            } catch (ex: Exception) {
+                ParseLog.log(ex)
+                null
+            }
+        }
+}
+
+private fun parseGuideRow(e: Element, showRecommendFlag: Boolean): Article? {
+    val numCell = e.first(ForumList.NUM_CELL)
+    val reply = extractFrom(numCell, ForumList.REPLY_COUNT)
+        .ifBlank { return null }
+        .toInt()
+    val view = extractFrom(numCell, ForumList.VIEW_COUNT)
+        .ifBlank { return null }
+        .toInt()
+    val title = e.first(ForumList.GUIDE_TITLE)?.text().orEmpty()
+    val byCell = e.first(ForumList.BY_CELL)
+    val author = extractFrom(byCell, ForumList.AUTHOR)
+    val date = extractFrom(byCell, ForumList.DATE)
+    val titleCell = e.first(ForumList.TITLE_CELL)
+    val url = extractAttrFrom(titleCell, "href", ForumList.TITLE_LINK)
+    val origin = e.first(ForumList.GUIDE_ORIGIN)?.text().orEmpty()
+    val helpInfo = e.first(ForumList.HELP_COIN)?.text().orEmpty()
+    var helpCoin = 0
+    if (helpInfo.isEmpty()) {
+        if (titleCell
+                ?.text()
+                ?.contains("- [已解决]") == true
+        ) {
+            helpCoin = -1
+        }
+    } else {
+        helpCoin = helpInfo.toIntOrNull() ?: 0
+    }
+    val isRecommended = showRecommendFlag && isRecommended(titleCell)
+    if (title.isNotBlank() && author.isNotEmpty()) {
+        return Article(
+            title,
+            author,
+            date,
+            url,
+            view,
+            reply,
+            origin,
+            helpCoin,
+            isRecommended
+        )
+    }
+    return null
+}
+
+private fun isRecommended(titleCell: Element?): Boolean {
+    return titleCell
+        ?.getElementsByTag("img")
+        ?.map { it.attr("title") }
+        ?.any { s ->
+            when {
+                s.contains(HOT_PATTERN) ->
+                    s.replace(HOT_PATTERN, "")
+                        .trim()
+                        .toIntOrNull()
+                        ?.let { it >= HOT_LIMIT }
+                        ?: false
+                s.contains(RECOMMENDED_PATTERN) ->
+                    s.replace(RECOMMENDED_PATTERN, "")
+                        .trim()
+                        .toIntOrNull()
+                        ?.let { it >= RECOMMENDED_LIMIT }
+                        ?: false
+                else -> false
+            }
+        } ?: false
+}
+
+internal fun extractFrom(element: Element?, evaluator: Evaluator): String {
+    return element?.first(evaluator)?.text().orEmpty()
+}
+
+internal fun extractAttrFrom(element: Element?, attr: String, evaluator: Evaluator): String {
+    return element?.first(evaluator)?.attr(attr).orEmpty()
+}
@@ -0,0 +1,50 @@
+package top.easelink.lcg.parser
+
+import org.jsoup.nodes.Document
+import top.easelink.lcg.parser.Selectors.Notification
+import top.easelink.lcg.ui.main.model.BaseNotification
+import top.easelink.lcg.ui.main.model.NotificationModel
+import top.easelink.lcg.ui.main.model.SystemNotification
+
+/**
+ * Links in the notifications are rewritten to `lcg:` so the app opens them itself
+ */
+fun parseNotifications(doc: Document): NotificationModel {
+    val notifications = doc.all(Notification.ITEM).mapNotNull { element ->
+        try {
+            val ntc = element.first(Notification.BODY)!!
+            ntc
+                .getElementsByTag("a")
+                .forEach {
+                    val href = it.attr("href")
+                    if (href.isNotEmpty()) {
+                        it.attr("href", "lcg:$href")
+                    }
+                }
+            BaseNotification(
+                avatar = element.first(Selectors.IMG)!!.attr("src"),
+                content = ntc.html(),
+                dateTime = element.first(Notification.DATE)!!.text()
+            )
+        } catch (e: Exception) {
+            ParseLog.log(e)
+            null
+        }
+    }
+    val nextPageUrl = doc.first(Selectors.NEXT_PAGE)?.attr("href").orEmpty()
+    return NotificationModel(notifications, nextPageUrl)
+}
+
+fun parseSystemNotifications(doc: Document): List<SystemNotification> {
+    doc.apply {
+        val dateTime = all(Notification.DATE).map {
+            it.text()
+        }
+        return all(Notification.ITEM).mapIndexed { index, element ->
+            SystemNotification(
+                title = element.first(Notification.BODY)!!.html(),
+                dateTime = dateTime[index]
+            )
+        }
+    }
+}
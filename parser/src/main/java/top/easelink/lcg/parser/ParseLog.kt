@@ -0,0 +1,15 @@
+package top.easelink.lcg.parser
+
+/**
+ * Parsers skip broken rows / posts instead of failing the page, the errors go here.
+ * The app points it to its logger, nothing is logged by default.
+ */
+object ParseLog {
+
+    @Volatile
+    var sink: (Throwable) -> Unit = {}
+
+    fun log(t: Throwable) {
+        sink(t)
+    }
+}
@@ -0,0 +1,54 @@
+package top.easelink.lcg.parser
+
+import org.jsoup.nodes.Document
+import top.easelink.lcg.parser.Selectors.Rank
+import top.easelink.lcg.ui.main.discover.model.RankModel
+import top.easelink.lcg.ui.main.discover.source.RankType
+
+/**
+ * @param notice time the rank was updated
+ */
+class RankPage(
+    val list: List<RankModel>,
+    val notice: String
+)
+
+fun parseRankPage(document: Document, rankType: RankType): RankPage {
+    return with(document) {
+        val time = first(Rank.NOTICE)?.text().orEmpty()
+        val list = all(Rank.ROW)
+            .mapNotNull { tr ->
+                try {
+                    val index = tr.child(0).let {
+                        if (it.childrenSize() > 0) {
+                            it.child(0).attr("alt")
+                        } else {
+                            it.text()
+                        }
+                    }
+                    val title = tr.child(1).text()
+                    val url = tr.child(1).child(0).attr("href")
+                    val forum = tr.child(2).text()
+                    val authorName = tr.child(3).child(0).child(0).text()
+                    val authorUrl = tr.child(3).child(0).child(0).attr("href")
+                    val date = tr.child(3).child(1).text()
+                    val num = tr.child(4).child(0).text()
+                    RankModel(
+                        title = title,
+                        url = url,
+                        authorName = authorName,
+                        authorUrl = authorUrl,
+                        date = date,
+                        index = index.toInt(),
+                        num = num.toInt(),
+                        forum = forum,
+                        type = rankType
+                    )
+
+                } catch (e: Exception) {
+                    null
+                }
+            }
+        RankPage(list, time)
+    }
+}
@@ -0,0 +1,71 @@
+package top.easelink.lcg.parser
+
+import org.jsoup.nodes.Document
+import top.easelink.lcg.parser.Selectors.BaiduSearch
+import top.easelink.lcg.ui.search.model.BaiduSearchResult
+import top.easelink.lcg.ui.search.model.BaiduSearchResults
+import top.easelink.lcg.ui.search.model.LCGSearchResultItem
+import top.easelink.lcg.ui.search.model.LCGSearchResults
+
+fun parseBaiduSearchResults(doc: Document): BaiduSearchResults {
+    val list: List<BaiduSearchResult> = doc.all(BaiduSearch.RESULT)
+        .mapNotNull {
+            try {
+                val link = it.first(BaiduSearch.TITLE, Selectors.LINK)
+                val title = link?.text().orEmpty()
+                val url = link?.attr("href").orEmpty()
+                val content = it.first(BaiduSearch.ABSTRACT)?.text().orEmpty()
+                return@mapNotNull BaiduSearchResult(title, content, url)
+            } catch (e: Exception) {
+                ParseLog.log(e)
+            }
+            null
+        }
+    if (list.isEmpty()) {
+        return BaiduSearchResults(emptyList())
+    }
+    return BaiduSearchResults(list).also {
+        try {
+            it.nextPageUrl = doc.first(BaiduSearch.NEXT_PAGE)
+                ?.attr("href")
+            it.totalResult = doc
+                .getElementsByClass("support-text-top")
+                .first()
+                ?.text()
+        } catch (e: Exception) { // mute
+            it.nextPageUrl = null
+        }
+    }
+}
+
+/**
+ * Results of the site search, see [parseLCGSearchNextPage] for the next page
+ */
+fun parseLCGSearchResults(doc: Document): LCGSearchResults {
+    val results = doc.getElementsByClass("pbw").mapNotNull {
+        try {
+            val spans = it.getElementsByTag("span")
+            val aNode = it.selectFirst("a")
+            val pNode = it.selectFirst("p.xg1")
+            if (spans.isNotEmpty() && spans.size == 3) {
+                return@mapNotNull LCGSearchResultItem(
+                    title = aNode.html(),
+                    url = aNode.attr("href"),
+                    replyView = pNode.text(),
+                    content = pNode.nextElementSibling().html(),
+                    author = spans[1].text(),
+                    date = spans[0].text(),
+                    forum = spans[2].text()
+                )
+            }
+        } catch (e: Exception) {
+            ParseLog.log(e)
+        }
+        null
+    }
+    return LCGSearchResults(results)
+}
+
+fun parseLCGSearchNextPage(doc: Document): String? {
+    return doc.first(Selectors.NEXT_PAGE)?.attr("href")
+}
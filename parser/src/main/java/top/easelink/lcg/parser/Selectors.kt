@@ -0,0 +1,135 @@
+package top.easelink.lcg.parser
+
+import org.jsoup.nodes.Element
+import org.jsoup.nodes.Node
+import org.jsoup.select.Collector
+import org.jsoup.select.Elements
+import org.jsoup.select.Evaluator
+import org.jsoup.select.NodeFilter
+import org.jsoup.select.NodeTraversor
+import org.jsoup.select.QueryParser
+
+/**
+ * Css queries used by the page parsers, compiled once.
+ *
+ * `select(String)` parses its query on every call, which adds up when it's done for
+ * every field of every row. Each group is compiled on its first use.
+ */
+object Selectors {
+
+    val NEXT_PAGE = compile("a.nxt")
+    val IMG = compile("img")
+    val LINK = compile("a")
+
+    object ForumList {
+        val ROW = compile("tbody[id^=normal]")
+        val NUM_CELL = compile("td.num")
+        val REPLY_COUNT = compile("a.xi2")
+        val VIEW_COUNT = compile("em")
+        val TITLE_CELL_NEW = compile("th.new")
+        val TITLE_CELL = compile("th.common")
+        val TITLE = compile(".xst")
+        val TITLE_LINK = compile("a.xst")
+        val BY_CELL = compile("td.by")
+        val AUTHOR = compile("a[href*=uid]")
+        val DATE = compile("span")
+        val ORIGIN = compile("a[target]")
+        val GUIDE_TITLE = compile("th.common > .xst")
+        val GUIDE_ORIGIN = compile("td.by > a[target]")
+        val HELP_COIN = compile("th.common > span.xi1 > span.xw1")
+    }
+
+    object ThreadPage {
+        val SCRIPT = compile("script")
+        val SUBJECT = compile("span#thread_subject")
+        val FORM_HASH = compile("input[name=formhash]")
+        val POST = compile("table[id^=pid]")
+        val USER_INFO = compile("td[rowspan]")
+        val POST_BODY = compile("div.pcb")
+        val AVATAR = compile("div.avatar")
+        val FOLLOW = compile("a[id^=follow]")
+        val USER_NAME = compile("a.xw1")
+        val AUTHOR_INFO = compile("div.authi")
+        val POST_DATE = compile("div.authi em")
+        val DATE = compile("em")
+        val FAST_REPLY = compile("a.fastre")
+        val REPLY_ADD = compile("a.replyadd")
+        val CONTENT = compile("td.t_f")
+        val LOCKED = compile("div.locked")
+        val SAVED_PHOTO = compile("div.savephotop > img")
+        val TIP = compile("div.tip")
+    }
+
+    object Follow {
+        val ITEM = compile("li.cl")
+        val LAST_ACTION = compile("p")
+        val FOLLOW_MOD = compile("a[id^=a_followmod]")
+        val COUNT = compile("strong.xi2")
+    }
+
+    object Notification {
+        val ITEM = compile("dl.cl")
+        val BODY = compile("dd.ntc_body")
+        val DATE = compile("span.xg1")
+    }
+
+    object Rank {
+        val NOTICE = compile("div.notice")
+        val ROW = compile("table tbody tr")
+    }
+
+    object BaiduSearch {
+        val RESULT = compile("div.result")
+        val TITLE = compile("h3.c-title")
+        val ABSTRACT = compile("div.c-abstract")
+        val NEXT_PAGE = compile("a.pager-next-foot")
+    }
+
+    fun compile(query: String): Evaluator = QueryParser.parse(query)
+}
+
+/**
+ * @return all elements under this one matching [evaluator]
+ */
+fun Element.all(evaluator: Evaluator): Elements = Collector.collect(evaluator, this)
+
+/**
+ * @return the first element under this one matching [evaluator], the walk stops right there
+ */
+fun Element.first(evaluator: Evaluator): Element? {
+    return FirstMatch(this, evaluator).let {
+        NodeTraversor.filter(it, this)
+        it.match
+    }
+}
+
+/**
+ * Walk down [path] taking the first match at each step
+ */
+fun Element.first(vararg path: Evaluator): Element? {
+    var e: Element = this
+    for (evaluator in path) {
+        e = e.first(evaluator) ?: return null
+    }
+    return e
+}
+
+private class FirstMatch(
+    private val root: Element,
+    private val evaluator: Evaluator
+) : NodeFilter {
+
+    var match: Element? = null
+
+    override fun head(node: Node, depth: Int): NodeFilter.FilterResult {
+        if (node is Element && evaluator.matches(root, node)) {
+            match = node
+            return NodeFilter.FilterResult.STOP
+        }
+        return NodeFilter.FilterResult.CONTINUE
+    }
+
+    override fun tail(node: Node, depth: Int): NodeFilter.FilterResult {
+        return NodeFilter.FilterResult.CONTINUE
+    }
+}
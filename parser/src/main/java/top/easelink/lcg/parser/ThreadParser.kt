@@ -0,0 +1,196 @@
+package top.easelink.lcg.parser
+
+import com.google.gson.Gson
+import com.google.gson.GsonBuilder
+import org.jsoup.nodes.Document
+import org.jsoup.nodes.Element
+import org.jsoup.nodes.TextNode
+import org.jsoup.parser.Tag
+import top.easelink.lcg.parser.Selectors.ThreadPage
+import top.easelink.lcg.ui.main.model.BlockException
+import top.easelink.lcg.ui.main.source.model.ArticleAbstractResponse
+import top.easelink.lcg.ui.main.source.model.ArticleDetail
+import top.easelink.lcg.ui.main.source.model.Post
+import top.easelink.lcg.ui.main.source.model.PreviewPost
+import java.util.concurrent.Executor
+
+private val gson: Gson = GsonBuilder().excludeFieldsWithoutExposeAnnotation().create()
+
+// below that a page isn't worth the handoff
+private const val PARALLEL_POSTS_THRESHOLD = 4
+private val CPU_COUNT = Runtime.getRuntime().availableProcessors()
+
+/**
+ * Title and posts of a thread page
+ *
+ * @param executor posts are processed on it together with the calling thread
+ */
+@Throws(BlockException::class)
+fun parseThreadPage(doc: Document, executor: Executor): ArticleDetail {
+    val articleAbstract: ArticleAbstractResponse? =
+        doc.first(ThreadPage.SCRIPT)?.let {
+            try {
+                val json = it.html().trim().replace("\u00a0".toRegex(), "")
+                return@let gson.fromJson(json, ArticleAbstractResponse::class.java)
+            } catch (e: Exception) {
+                // no need to handle
+            }
+            null
+        }
+    val title = doc.first(ThreadPage.SUBJECT)?.text().orEmpty()
+    if (title.isEmpty()) {
+        throw BlockException(blockMessage(doc))
+    }
+    val nextPageUrl = doc.first(Selectors.NEXT_PAGE)?.attr("href").orEmpty()
+    val postList = extractPosts(doc, executor)
+    val fromHash = doc.first(ThreadPage.FORM_HASH)?.attr("value")
+    return ArticleDetail(title, postList, nextPageUrl, fromHash, articleAbstract)
+}
+
+/**
+ * The first post of a thread page
+ */
+@Throws(BlockException::class)
+fun parsePreviewPost(document: Document): PreviewPost {
+    val dateTime = document
+        .first(ThreadPage.AUTHOR_INFO)
+        ?.all(ThreadPage.DATE)
+        ?.text()
+        ?: throw BlockException(blockMessage(document))
+    val content = getFirstContent(document)
+    var avatar: String? = null
+    var name: String? = null
+    document.first(ThreadPage.USER_INFO)?.apply {
+        avatar = first(ThreadPage.AVATAR, Selectors.IMG)?.attr("src")
+        name = first(ThreadPage.USER_NAME)?.text()
+    }
+    return PreviewPost(
+        avatar = avatar ?: "",
+        author = name ?: "Unknown",
+        date = dateTime,
+        content = content
+    )
+}
+
+private fun blockMessage(doc: Document): String {
+    return doc
+        .getElementById("messagetext")
+        ?.nextElementSibling()
+        ?.text()
+        .orEmpty()
+}
+
+/**
+ * Every post lives in its own table#pid*, each one is walked once and all fields of a post
+ * come from its own table, so a post missing some parts can't shift the following ones.
+ * Posts only touch their own subtree, so they're processed in parallel.
+ */
+private fun extractPosts(doc: Document, executor: Executor): List<Post> {
+    // the first post is recommended instead of being supported
+    val recommendAddUrl = doc.getElementById("recommend_add")?.attr("href")
+    val containers = doc.all(ThreadPage.POST)
+    val parallelism = if (containers.size >= PARALLEL_POSTS_THRESHOLD) CPU_COUNT else 1
+    return containers
+        .forkJoinMapIndexed(executor, parallelism) { index, container ->
+            try {
+                extractPost(container, if (index == 0) recommendAddUrl else null)
+            } catch (npe: NullPointerException) {
+                // skip the post if there's any npe occurs
+                ParseLog.log(npe)
+                null
+            }
+        }
+        .filterNotNull()
+}
+
+private fun extractPost(container: Element, recommendAddUrl: String?): Post? {
+    val userInfo = container.first(ThreadPage.USER_INFO) ?: return null
+    val pcb = container.first(ThreadPage.POST_BODY) ?: return null
+    val avatar = userInfo.first(ThreadPage.AVATAR)
+    val follow = userInfo.first(ThreadPage.FOLLOW)
+    return Post(
+        author = userInfo.first(ThreadPage.USER_NAME)?.text().orEmpty(),
+        avatar = avatar?.first(Selectors.IMG)?.attr("src").orEmpty(),
+        date = container.first(ThreadPage.POST_DATE)?.text().orEmpty(),
+        content = extractContent(pcb),
+        replyUrl = container.first(ThreadPage.FAST_REPLY)?.attr("href"),
+        replyAddUrl = recommendAddUrl ?: container.first(ThreadPage.REPLY_ADD)?.attr("href"),
+        profileUrl = avatar?.first(Selectors.LINK)?.attr("href").orEmpty(),
+        extraInfo = userInfo.getElementsByTag("dl").outerHtml(),
+        followInfo = follow?.let { it.attr("title") to it.attr("href") }
+    )
+}
+
+private fun getFirstContent(doc: Document): String {
+    return doc.first(ThreadPage.POST_BODY)!!
+        .let { element ->
+            element.first(ThreadPage.CONTENT)?.let { tmp ->
+                processContentElement(tmp).html()
+            }
+                ?: element.first(ThreadPage.LOCKED)!!.html()
+        }
+}
+
+private fun extractContent(pcb: Element): String {
+    return pcb.first(ThreadPage.CONTENT)?.let { tmp ->
+        processContentElement(tmp)
+    }?.let { res ->
+        pcb.all(ThreadPage.SAVED_PHOTO).forEach { imgElement ->
+            res.appendChild(
+                imgElement.attr("src", imgElement.attr("file"))
+            )
+        }
+        res.html()
+    } ?: pcb.first(ThreadPage.LOCKED)!!.html()
+}
+
+private fun processContentElement(element: Element): Element { // remove picture tips
+    element.all(ThreadPage.TIP).remove()
+    // remove user level info etc
+    element.all(ThreadPage.SCRIPT).remove()
+    // convert all code
+    for (e in element.getElementsByTag("pre")) {
+        keepCodeFormat(e)
+    }
+    // move gif from file to src
+    val imgElements = element.getElementsByTag("img")
+    for (i in imgElements.indices) {
+        val imgElement = imgElements[i]
+        val src = imgElement.attr("src")
+        if (src.contains("https://static.52pojie.cn/static/") && !src.contains("none")) {
+            imgElement.remove()
+        }
+        val attr = imgElement.attr("file")
+        if (attr.isNotEmpty()) {
+            imgElement.attr("src", attr)
+        }
+    }
+    return element
+}
+
+/**
+ * Line breaks to <br/> and spaces to &nbsp; in the text of [pre], in place.
+ *
+ * Nothing is re-parsed, posts are processed in parallel and the parser of the document
+ * is not thread safe.
+ */
+private fun keepCodeFormat(pre: Element) {
+    // collected first, text nodes are replaced below
+    val texts = pre.allElements.flatMap { it.textNodes() }
+    for (node in texts) {
+        val lines = node.wholeText.split("\r\n", "\r", "\n")
+        if (lines.size == 1) {
+            node.text(lines[0].replace(' ', '\u00a0'))
+            continue
+        }
+        lines.forEachIndexed { i, line ->
+            if (i > 0) {
+                node.before(Element(Tag.valueOf("br"), ""))
+            }
+            if (line.isNotEmpty()) {
+                node.before(TextNode(line.replace(' ', '\u00a0')))
+            }
+        }
+        node.remove()
+    }
+}
@@ -0,0 +1,100 @@
+package top.easelink.lcg.parser
+
+import org.jsoup.Jsoup
+import org.jsoup.nodes.Document
+import org.jsoup.nodes.Element
+import top.easelink.lcg.ui.main.me.model.UserInfo
+import top.easelink.lcg.ui.main.model.AntiScrapingException
+import top.easelink.lcg.ui.main.model.NotificationInfo
+import top.easelink.lcg.ui.profile.model.ExtraUserInfo
+
+/**
+ * @param loginOrRegisterText title of the page when the user is not logged in
+ */
+@Throws(NullPointerException::class, AntiScrapingException::class)
+fun parseUserInfo(doc: Document, loginOrRegisterText: String): UserInfo {
+    with(doc) {
+        val userName = doc.selectFirst("h2.mt")?.text()
+        when {
+            userName.isNullOrEmpty() -> {
+                val message = getElementById("messagetext")?.text()
+                if (message.isNullOrEmpty()) {
+                    throw AntiScrapingException()
+                } else {
+                    return UserInfo(message)
+                }
+            }
+            userName == loginOrRegisterText -> {
+                return UserInfo(loginOrRegisterText)
+            }
+            else -> {
+                val avatar = selectFirst("div.avt > a > img")?.attr("src")
+                val groupInfo = getElementById("g_upmine")?.text()
+                val infoList =
+                    getElementById("psts").selectFirst("ul.pf_l").getElementsByTag("li").also {
+                        it.forEach { il ->
+                            il.selectFirst("em").appendText(" : ")
+                        }
+                    }
+                val signInState = select("img.qq_bind")
+                    ?.firstOrNull {
+                        !(it.attr("src")?.contains("qq") ?: true)
+                    }
+                    ?.attr("src")
+                return UserInfo(
+                    userName = userName,
+                    avatarUrl = avatar,
+                    groupInfo = groupInfo,
+                    wuaiCoin = infoList[3].text(),
+                    credit = infoList[1].text(),
+                    answerRate = infoList[6].text(),
+                    enthusiasticValue = infoList[7].text(),
+                    signInStateUrl = signInState
+                )
+            }
+        }
+    }
+}
+
+fun parseExtraUserInfoProfilePage(content: String): List<ExtraUserInfo> {
+    return Jsoup.parse(content).let {
+        it.getElementsByTag("dt").zip(it.getElementsByTag("dd")).map { pairs ->
+            ExtraUserInfo(pairs.first.text(), pairs.second.text())
+        }
+    }
+}
+
+/**
+ * Unread counts in the prompt menu (`ul#myprompt_menu`)
+ */
+fun parseNotificationInfo(doc: Document): NotificationInfo {
+    with(doc) {
+        val menu: Element? = getElementById("myprompt_menu")
+        var message = 0
+        var follower = 0
+        var myPost = 0
+        var systemNotifs = 0
+        menu?.select("li")?.forEach {
+            try {
+                it.select("a > span").first()?.text()?.also { v ->
+                    if (v.isNotBlank() && v.toInt() >= 1) {
+                        it.selectFirst("a")?.attr("href")?.also { url ->
+                            when {
+                                url.contains("mypost") -> myPost++
+                                url.contains("follower") -> follower++
+                                url.contains("pm") -> message++
+                                url.contains("system") -> systemNotifs++
+                                else -> {
+                                    // do nothing
+                                }
+                            }
+                        }
+                    }
+                }
+            } catch (e: NumberFormatException) {
+                // don't care
+            }
+        }
+        return NotificationInfo(message, follower, myPost, systemNotifs)
+    }
+}
@@ -0,0 +1,9 @@
+package top.easelink.lcg.ui.main.discover.source
+
+enum class RankType(val value: String) {
+    VIEW("views"),
+    REPLY("replies"),
+    HEAT("heat"),
+    FAVORITE("favtimes"),
+    SHARE("sharetimes")
+}
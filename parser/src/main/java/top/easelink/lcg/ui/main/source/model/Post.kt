@@ -1,14 +1,12 @@
 package top.easelink.lcg.ui.main.source.model
 
-import android.os.Parcelable
-import kotlinx.android.parcel.Parcelize
+import java.io.Serializable
 
 /**
  * author : junzhang
  * date   : 2019-07-04 11:38
  * desc   :
  */
-@Parcelize
 class Post
 /**
  *
@@ -26,4 +24,4 @@ class Post
     val profileUrl: String? = null,
     val extraInfo: String? = null,
     val followInfo: Pair<String, String>? = null
-) : Parcelable
\ No newline at end of file
+) : Serializable
\ No newline at end of file
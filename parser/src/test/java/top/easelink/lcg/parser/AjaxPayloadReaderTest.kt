@@ -0,0 +1,111 @@
+package top.easelink.lcg.parser
+
+import org.junit.Assert.*
+import org.junit.Test
+import java.io.Reader
+import java.io.StringReader
+
+class AjaxPayloadReaderTest {
+
+    private fun envelope(payload: String): String {
+        return "<?xml version=\"1.0\" encoding=\"gbk\"?>\r\n<root><![CDATA[$payload]]></root>"
+    }
+
+    /**
+     * @param chunk chars handed out by each read of the input
+     */
+    private fun payloadOf(xml: String, chunk: Int = Int.MAX_VALUE): String {
+        return AjaxPayloadReader(ChunkedReader(StringReader(xml), chunk)).use { it.readText() }
+    }
+
+    @Test
+    fun readsPayload() {
+        val payload = "<ul><li class=\"cl\">a</li></ul>"
+
+        assertEquals(payload, payloadOf(envelope(payload)))
+    }
+
+    @Test
+    fun terminatorSplitAcrossReads() {
+        val payload = "<p>a]b]]c</p>"
+        for (chunk in 1..5) {
+            assertEquals("chunk $chunk", payload, payloadOf(envelope(payload), chunk))
+        }
+    }
+
+    @Test
+    fun terminatorSplitAcrossBuffers() {
+        // the reader's buffer is 8192 chars, move the terminator over its end
+        val prefix = envelope("").indexOf("]]>")
+        for (length in 8192 - prefix - 4..8192 - prefix + 4) {
+            val payload = "x".repeat(length)
+            assertEquals(payload, payloadOf(envelope(payload)))
+            assertEquals(payload, payloadOf(envelope(payload), 4096))
+        }
+    }
+
+    @Test
+    fun bracketBeforeTerminator() {
+        assertEquals("a]", payloadOf(envelope("a]")))
+        assertEquals("a]]", payloadOf(envelope("a]]")))
+        assertEquals("a]", payloadOf(envelope("a]"), 1))
+    }
+
+    @Test
+    fun payloadWithoutTerminator() {
+        assertEquals("abc", payloadOf("<root><![CDATA[abc"))
+        assertEquals("abc]]", payloadOf("<root><![CDATA[abc]]", 1))
+    }
+
+    @Test
+    fun noCdata() {
+        assertEquals("", payloadOf("<?xml version=\"1.0\"?><root>nothing</root>"))
+        assertEquals("", payloadOf(""))
+        assertFalse(AjaxPayloadReader(StringReader("<root></root>")).isFalse())
+    }
+
+    @Test
+    fun startAfterPartialMatch() {
+        assertEquals("x", payloadOf("<root><<![CDATA[x]]></root>"))
+        assertEquals("y", payloadOf("<root><![CDA<![CDATA[y]]></root>", 2))
+    }
+
+    @Test
+    fun falsePayload() {
+        assertTrue(AjaxPayloadReader(StringReader(envelope("false"))).isFalse())
+        assertTrue(AjaxPayloadReader(ChunkedReader(StringReader(envelope("false")), 1)).isFalse())
+        assertTrue(AjaxPayloadReader(StringReader("<root><![CDATA[false")).isFalse())
+        assertFalse(AjaxPayloadReader(StringReader(envelope("falsehood"))).isFalse())
+        assertFalse(AjaxPayloadReader(StringReader(envelope("<p>false</p>"))).isFalse())
+        assertNull(parseAjaxPayload(StringReader(envelope("false")), Pages.BASE_URL))
+    }
+
+    @Test
+    fun payloadIsReadAfterCheckingFalse() {
+        val reader = AjaxPayloadReader(ChunkedReader(StringReader(envelope("fals<b>e</b>")), 1))
+
+        assertFalse(reader.isFalse())
+        assertEquals("fals<b>e</b>", reader.readText())
+    }
+
+    @Test
+    fun parsesPayload() {
+        val xml = envelope("<ul><li class=\"cl\"><h2><a href=\"forum.php?mod=viewthread&amp;tid=1\">t</a></h2></li></ul>")
+        val doc = parseAjaxPayload(StringReader(xml), Pages.BASE_URL)!!
+
+        assertEquals(1, doc.select("li.cl").size)
+        assertEquals("${Pages.BASE_URL}forum.php?mod=viewthread&tid=1", doc.selectFirst("h2 > a").absUrl("href"))
+        assertFalse(doc.outerHtml().contains("root"))
+    }
+
+    private class ChunkedReader(private val input: Reader, private val chunk: Int) : Reader() {
+
+        override fun read(cbuf: CharArray, off: Int, len: Int): Int {
+            return input.read(cbuf, off, len.coerceAtMost(chunk))
+        }
+
+        override fun close() {
+            input.close()
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package top.easelink.lcg.parser
+
+import org.jsoup.Jsoup
+import org.junit.Assert.*
+import org.junit.Test
+import top.easelink.lcg.ui.main.model.LoginRequiredException
+import java.io.Reader
+import java.io.StringReader
+
+class ForumListReaderTest {
+
+    private fun read(html: String): String = ForumListReader(StringReader(html)).read()
+
+    @Test
+    fun parsesLikeTheFullPage() {
+        val html = Pages.text("forum_page")
+        val full = parseForumPage(Jsoup.parse(html, Pages.BASE_URL), true)!!
+        val trimmed = parseForumPage(Jsoup.parse(read(html), Pages.BASE_URL), true)!!
+
+        assertEquals(
+            full.articleList.map { listOf(it.title, it.author, it.date, it.url, it.reply, it.view) },
+            trimmed.articleList.map { listOf(it.title, it.author, it.date, it.url, it.reply, it.view) }
+        )
+        assertEquals(
+            full.threadList.map { it.threadName to it.threadUrl },
+            trimmed.threadList.map { it.threadName to it.threadUrl }
+        )
+    }
+
+    @Test
+    fun keepsOnlyRowsAndThreadTypes() {
+        val doc = Jsoup.parse(read(Pages.text("forum_page")))
+
+        assertEquals(3, doc.select("tbody[id^=normal]").size)
+        assertNotNull(doc.getElementById("thread_types"))
+        assertTrue(doc.select("title, th[colspan], div.pg").isEmpty())
+    }
+
+    @Test
+    fun stopsAfterThreadTable() {
+        val html = Pages.text("forum_page")
+        val input = CountingReader(StringReader(html))
+        ForumListReader(input).read()
+
+        assertTrue(input.count < html.indexOf("class=\"pg\""))
+    }
+
+    @Test
+    fun readsAcrossReadsOfOneChar() {
+        val html = Pages.text("forum_page")
+
+        assertEquals(read(html), ForumListReader(CountingReader(StringReader(html))).read())
+    }
+
+    @Test
+    fun keepsLoginMessage() {
+        val html = Pages.text("login_required")
+        val input = CountingReader(StringReader(html))
+        val doc = Jsoup.parse(ForumListReader(input).read())
+
+        assertNotNull(doc.getElementById("messagelogin"))
+        // no rows, the page is read to the end
+        assertEquals(html.length, input.count)
+        try {
+            parseForumPage(doc, true)
+            fail()
+        } catch (e: LoginRequiredException) {
+            // expected
+        }
+    }
+
+    @Test
+    fun skipsRawTextAndComments() {
+        val html = """
+            <html><head><script>var s = "</table><tbody id='normalthread_1'>";</script></head>
+            <body>
+            <!-- <tbody id="normalthread_2"></tbody> -->
+            <style>td { content: "</table>" }</style>
+            <table>
+            <TBODY ID="normalthread_3"><tr><td>a</td></tr></TBODY>
+            <tbody id='normalthread_4'><tr><td><table><tr><td>b</td></tr></table></td></tr></tbody>
+            </table>
+            <table><tbody id="normalthread_5"></tbody></table>
+            </body></html>
+        """.trimIndent()
+        val doc = Jsoup.parse(read(html))
+
+        assertEquals(
+            listOf("normalthread_3", "normalthread_4"),
+            doc.select("tbody[id^=normal]").map { it.id() }
+        )
+        assertEquals("b", doc.getElementById("normalthread_4").text())
+    }
+
+    @Test
+    fun emptyInput() {
+        assertTrue(Jsoup.parse(read("")).select("tbody").isEmpty())
+    }
+
+    private class CountingReader(private val input: Reader) : Reader() {
+
+        var count = 0
+            private set
+
+        override fun read(cbuf: CharArray, off: Int, len: Int): Int {
+            if (len == 0) {
+                return 0
+            }
+            return input.read(cbuf, off, 1).also {
+                if (it > 0) count += it
+            }
+        }
+
+        override fun close() {
+            input.close()
+        }
+    }
+}
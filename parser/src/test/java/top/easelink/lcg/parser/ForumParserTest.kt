@@ -0,0 +1,86 @@
+package top.easelink.lcg.parser
+
+import org.jsoup.Jsoup
+import org.junit.Assert.*
+import org.junit.Test
+import top.easelink.lcg.ui.main.model.LoginRequiredException
+
+class ForumParserTest {
+
+    @Test
+    fun parsesThreadRowsAndTypes() {
+        val page = parseForumPage(Pages.parse("forum_page"), true)!!
+
+        // the moved thread has no counts and is skipped
+        assertEquals(2, page.articleList.size)
+        page.articleList[0].apply {
+            assertEquals("新的脱壳工具", title)
+            assertEquals("user_001", author)
+            assertEquals("2020-8-30", date)
+            assertEquals("thread-1250001-1-1.html", url)
+            assertEquals(12, reply)
+            assertEquals(3456, view)
+        }
+        page.articleList[1].apply {
+            assertEquals("安卓逆向入门", title)
+            assertEquals(0, reply)
+            assertEquals(87, view)
+        }
+        assertEquals(listOf("全部", "原创工具", "逆向分析"), page.threadList.map { it.threadName })
+        assertEquals(
+            "forum.php?mod=forumdisplay&fid=16&filter=typeid&typeid=231",
+            page.threadList[1].threadUrl
+        )
+    }
+
+    @Test
+    fun skipsThreadTypesWhenNotAsked() {
+        val page = parseForumPage(Pages.parse("forum_page"), false)!!
+
+        assertEquals(2, page.articleList.size)
+        assertTrue(page.threadList.isEmpty())
+    }
+
+    @Test(expected = LoginRequiredException::class)
+    fun throwsWhenLoginIsRequired() {
+        parseForumPage(Pages.parse("login_required"), true)
+    }
+
+    @Test
+    fun emptyPageHasNoThreads() {
+        val page = parseForumPage(Jsoup.parse("<html><body></body></html>"), true)!!
+
+        assertTrue(page.articleList.isEmpty())
+        assertTrue(page.threadList.isEmpty())
+    }
+
+    @Test
+    fun parsesGuideRows() {
+        val articles = parseGuideArticles(Pages.parse("guide_page"), true)
+
+        assertEquals(3, articles.size)
+        articles[0].apply {
+            assertEquals("求一个注册机", title)
+            assertEquals("user_011", author)
+            assertEquals("悬赏问答区", origin)
+            assertEquals(5, reply)
+            assertEquals(120, view)
+            assertEquals(20, helpCoin)
+            assertFalse(isRecommended)
+        }
+        // solved
+        assertEquals(-1, articles[1].helpCoin)
+        articles[2].apply {
+            assertEquals(0, helpCoin)
+            assertEquals("脱壳破解区", origin)
+            assertTrue(isRecommended)
+        }
+    }
+
+    @Test
+    fun guideRowsAreNotFlaggedWhenNotAsked() {
+        val articles = parseGuideArticles(Pages.parse("guide_page"), false)
+
+        assertTrue(articles.none { it.isRecommended })
+    }
+}
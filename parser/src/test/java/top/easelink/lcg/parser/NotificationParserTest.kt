@@ -0,0 +1,44 @@
+package top.easelink.lcg.parser
+
+import org.junit.Assert.*
+import org.junit.Test
+
+class NotificationParserTest {
+
+    @Test
+    fun parsesNotifications() {
+        val model = parseNotifications(Pages.parse("notifications"))
+
+        // the last one has no avatar and is skipped
+        assertEquals(2, model.notifications.size)
+        model.notifications[0].apply {
+            assertEquals(
+                "https://avatar.52pojie.cn/data/avatar/000/10/00/21_avatar_small.jpg",
+                avatar
+            )
+            assertEquals("2020-8-30 10:00", dateTime)
+            assertTrue(content.startsWith("user_021 回复了您的帖子"))
+        }
+        assertEquals("home.php?mod=space&do=notice&page=2", model.nextPageUrl)
+    }
+
+    @Test
+    fun linksAreOpenedByTheApp() {
+        val model = parseNotifications(Pages.parse("notifications"))
+
+        assertTrue(
+            model.notifications[1].content.contains(
+                "href=\"lcg:forum.php?mod=viewthread&amp;tid=1250000\""
+            )
+        )
+    }
+
+    @Test
+    fun parsesSystemNotifications() {
+        val notifications = parseSystemNotifications(Pages.parse("notifications"))
+
+        assertEquals(3, notifications.size)
+        assertEquals("2020-8-28 08:00", notifications[2].dateTime)
+        assertEquals("没有头像的提醒", notifications[2].title)
+    }
+}
@@ -0,0 +1,19 @@
+package top.easelink.lcg.parser
+
+import org.jsoup.Jsoup
+import org.jsoup.nodes.Document
+
+/**
+ * Trimmed pages of the site under resources/pages, user names and hashes are made up
+ */
+object Pages {
+
+    const val BASE_URL = "https://www.52pojie.cn/"
+
+    fun text(name: String): String {
+        return Pages::class.java.getResourceAsStream("/pages/$name.html")!!
+            .use { String(it.readBytes(), Charsets.UTF_8) }
+    }
+
+    fun parse(name: String): Document = Jsoup.parse(text(name), BASE_URL)
+}
@@ -0,0 +1,180 @@
+package top.easelink.lcg.parser
+
+import org.jsoup.Jsoup
+import org.jsoup.nodes.Document
+import org.junit.Assert.*
+import org.junit.Test
+import top.easelink.lcg.ui.main.model.BlockException
+import top.easelink.lcg.ui.main.source.model.Post
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import java.io.ObjectInputStream
+import java.io.ObjectOutputStream
+import java.util.concurrent.Executor
+import java.util.concurrent.Executors
+
+class ThreadParserTest {
+
+    private val callerRuns = Executor { it.run() }
+
+    @Test
+    fun parsesTitleAndPage() {
+        val detail = parseThreadPage(Pages.parse("thread_page"), callerRuns)
+
+        assertEquals("安卓逆向入门", detail.articleTitle)
+        assertEquals("thread-1250000-2-1.html", detail.nextPageUrl)
+        assertEquals("00000000", detail.fromHash)
+        assertEquals(3, detail.postList.size)
+    }
+
+    @Test
+    fun parsesFirstPost() {
+        val post = parseThreadPage(Pages.parse("thread_page"), callerRuns).postList[0]
+
+        assertEquals("user_003", post.author)
+        assertEquals(
+            "https://avatar.52pojie.cn/data/avatar/000/10/00/03_avatar_middle.jpg",
+            post.avatar
+        )
+        assertEquals("发表于 2020-8-29 09:00", post.date)
+        assertEquals("home.php?mod=space&uid=100003", post.profileUrl)
+        assertEquals(
+            "forum.php?mod=post&action=reply&fid=16&tid=1250000&repquote=33500001",
+            post.replyUrl
+        )
+        // the first post is recommended instead of supported
+        assertEquals(
+            "forum.php?mod=misc&action=recommend&do=add&tid=1250000&hash=00000000",
+            post.replyAddUrl
+        )
+        assertEquals("收听TA", post.followInfo?.first)
+        assertTrue(post.extraInfo!!.contains("吾爱币"))
+    }
+
+    @Test
+    fun cleansUpContent() {
+        val content = parseThreadPage(Pages.parse("thread_page"), callerRuns).postList[0].content
+
+        // image tips, scripts and smilies of the site are dropped
+        assertFalse(content.contains("下载次数"))
+        assertFalse(content.contains("level_tips"))
+        assertFalse(content.contains("smiley"))
+        // lazy loaded images point to the file
+        assertTrue(content.contains("src=\"https://attach.52pojie.cn/forum/202008/29/000001.png\""))
+        // code keeps its line breaks and indent
+        val code = Jsoup.parseBodyFragment(content).selectFirst("pre")
+        assertEquals(1, code.getElementsByTag("br").size)
+        assertTrue(code.text().contains("\u00a0\u00a0b();"))
+    }
+
+    @Test
+    fun parsesOtherPosts() {
+        val posts = parseThreadPage(Pages.parse("thread_page"), callerRuns).postList
+
+        posts[1].apply {
+            assertEquals("user_005", author)
+            assertEquals(
+                "forum.php?mod=misc&action=postreview&do=support&tid=1250000&pid=33500002&hash=00000000",
+                replyAddUrl
+            )
+            assertNull(followInfo)
+            // saved photos are appended to the content
+            assertTrue(content.contains("https://attach.52pojie.cn/forum/202008/29/000002.png"))
+        }
+        posts[2].apply {
+            assertEquals("user_006", author)
+            assertEquals("", avatar)
+            assertNull(replyUrl)
+            assertTrue(content.contains("作者被禁止或删除"))
+        }
+    }
+
+    @Test
+    fun parsesPostsInParallel() {
+        val executor = Executors.newFixedThreadPool(4)
+        try {
+            val doc = Pages.parse("thread_page")
+            val reply = doc.getElementById("post_33500002")
+            // enough posts to be processed in parallel
+            repeat(6) { doc.body().appendChild(reply.clone()) }
+            val posts = parseThreadPage(doc, executor).postList
+
+            assertEquals(9, posts.size)
+            assertEquals("user_003", posts[0].author)
+            assertTrue(posts.drop(3).all { it.author == "user_005" })
+        } finally {
+            executor.shutdown()
+        }
+    }
+
+    @Test
+    fun formatsCodeInParallelLikeInSequence() {
+        // every clone of the first post has code, a single page of them is processed together
+        fun pageWithCode(): Document {
+            val doc = Pages.parse("thread_page")
+            val first = doc.getElementById("post_33500001")
+            repeat(40) { doc.body().appendChild(first.clone()) }
+            return doc
+        }
+
+        val expected = parseThreadPage(pageWithCode(), callerRuns).postList.map { it.content }
+        val executor = Executors.newFixedThreadPool(4)
+        try {
+            repeat(20) {
+                val actual = parseThreadPage(pageWithCode(), executor).postList.map { it.content }
+                assertEquals(expected, actual)
+            }
+        } finally {
+            executor.shutdown()
+        }
+        assertTrue(expected.count { it.contains("<pre>") } > 40)
+    }
+
+    @Test
+    fun throwsWithMessageWhenBlocked() {
+        val doc = Jsoup.parse(
+            "<html><body><div id=\"messagetext\" class=\"alert_error\"></div>" +
+                    "<p>抱歉，本帖要求阅读权限高于 10 才能浏览</p></body></html>"
+        )
+        try {
+            parseThreadPage(doc, callerRuns)
+            fail()
+        } catch (e: BlockException) {
+            assertEquals("抱歉，本帖要求阅读权限高于 10 才能浏览", e.alertMessage)
+        }
+    }
+
+    @Test
+    fun parsesPreviewPost() {
+        val preview = parsePreviewPost(Pages.parse("thread_page"))
+
+        assertEquals("user_003", preview.author)
+        assertEquals(
+            "https://avatar.52pojie.cn/data/avatar/000/10/00/03_avatar_middle.jpg",
+            preview.avatar
+        )
+        assertTrue(preview.content.contains("先看代码"))
+    }
+
+    /**
+     * A reply is handed back to the thread as a serializable, see `getSerializable("post")`
+     */
+    @Test
+    fun postSurvivesSerialization() {
+        val post = parseThreadPage(Pages.parse("thread_page"), callerRuns).postList[0]
+        val bytes = ByteArrayOutputStream().also {
+            ObjectOutputStream(it).use { out -> out.writeObject(post) }
+        }.toByteArray()
+        val read = ObjectInputStream(ByteArrayInputStream(bytes)).use { it.readObject() } as Post
+
+        assertEquals(post.author, read.author)
+        assertEquals(post.avatar, read.avatar)
+        assertEquals(post.date, read.date)
+        assertEquals(post.content, read.content)
+        assertEquals(post.replyUrl, read.replyUrl)
+        assertEquals(post.replyAddUrl, read.replyAddUrl)
+        assertEquals(post.profileUrl, read.profileUrl)
+        assertEquals(post.extraInfo, read.extraInfo)
+        assertEquals(post.followInfo, read.followInfo)
+    }
+}
@@ -0,0 +1,88 @@
+package top.easelink.lcg.parser
+
+import org.jsoup.Jsoup
+import org.junit.Assert.*
+import org.junit.Test
+import top.easelink.lcg.ui.main.model.AntiScrapingException
+
+class UserParserTest {
+
+    @Test
+    fun parsesUserInfo() {
+        val info = parseUserInfo(Pages.parse("user_page"), LOGIN_OR_REGISTER)
+
+        assertEquals("user_003", info.userName)
+        assertEquals(
+            "https://avatar.52pojie.cn/data/avatar/000/10/00/03_avatar_middle.jpg",
+            info.avatarUrl
+        )
+        assertEquals("初级会员", info.groupInfo)
+        assertEquals("积分 : 312", info.credit)
+        assertEquals("吾爱币 : 128 CB", info.wuaiCoin)
+        assertEquals("采纳率 : 50%", info.answerRate)
+        assertEquals("热心值 : 17", info.enthusiasticValue)
+        // the qq binding icon is not the sign in state
+        assertEquals("static/image/common/sign_done.png", info.signInStateUrl)
+        assertNull(info.errorMessage)
+    }
+
+    @Test
+    fun notLoggedIn() {
+        val doc = Jsoup.parse("<html><body><h2 class=\"mt\">$LOGIN_OR_REGISTER</h2></body></html>")
+        val info = parseUserInfo(doc, LOGIN_OR_REGISTER)
+
+        assertNull(info.userName)
+        assertEquals(LOGIN_OR_REGISTER, info.errorMessage)
+    }
+
+    @Test
+    fun messageOfTheSite() {
+        val doc = Jsoup.parse("<html><body><div id=\"messagetext\"><p>您需要先登录才能继续本操作</p></div></body></html>")
+        val info = parseUserInfo(doc, LOGIN_OR_REGISTER)
+
+        assertEquals("您需要先登录才能继续本操作", info.errorMessage)
+    }
+
+    @Test(expected = AntiScrapingException::class)
+    fun throwsOnUnknownPage() {
+        parseUserInfo(Jsoup.parse("<html><body><script>location.href='/'</script></body></html>"), LOGIN_OR_REGISTER)
+    }
+
+    @Test
+    fun countsUnreadNotifications() {
+        val doc = Jsoup.parse(
+            """
+            <ul id="myprompt_menu" class="p_pop">
+            <li><a href="home.php?mod=space&amp;do=pm" id="pm_ntc">消息<span class="rq">2</span></a></li>
+            <li><a href="home.php?mod=follow&amp;do=follower">新听众</a></li>
+            <li><a href="home.php?mod=space&amp;do=notice&amp;view=mypost">我的帖子<span class="rq">5</span></a></li>
+            <li><a href="home.php?mod=space&amp;do=notice&amp;view=system">系统提醒<span class="rq">0</span></a></li>
+            </ul>
+            """.trimIndent()
+        )
+        val info = parseNotificationInfo(doc)
+
+        assertEquals(1, info.message)
+        assertEquals(0, info.follower)
+        assertEquals(1, info.posts)
+        assertEquals(0, info.systemNotifications)
+        assertTrue(info.isNotEmpty())
+    }
+
+    @Test
+    fun noNotificationsWithoutPromptMenu() {
+        assertTrue(parseNotificationInfo(Jsoup.parse("<html><body></body></html>")).isEmpty())
+    }
+
+    @Test
+    fun parsesExtraUserInfo() {
+        val info = parseExtraUserInfoProfilePage("<dl><dt>积分</dt><dd>312</dd><dt>在线时间</dt><dd>42 小时</dd></dl>")
+
+        assertEquals(listOf("积分", "在线时间"), info.map { it.title })
+        assertEquals(listOf("312", "42 小时"), info.map { it.content })
+    }
+
+    companion object {
+        private const val LOGIN_OR_REGISTER = "登录或注册"
+    }
+}
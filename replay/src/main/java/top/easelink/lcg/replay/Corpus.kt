@@ -0,0 +1,96 @@
+package top.easelink.lcg.replay
+
+import okhttp3.Headers
+import okhttp3.HttpUrl
+import okhttp3.Request
+import okio.Buffer
+import okio.ByteString.Companion.encodeUtf8
+import okio.ByteString.Companion.toByteString
+import java.io.File
+
+/**
+ * Recorded responses on disk, one `<hash>.head` + `<hash>.body` pair per request.
+ *
+ * Requests are keyed by method, path and query (plus the body of a post), the host is left out
+ * so pages recorded from the site can be replayed against a local server.
+ * Cookies are never stored, a corpus can be shared without leaking a session.
+ */
+class Corpus(val dir: File) {
+
+    class Recording(
+        val key: String,
+        val code: Int,
+        val message: String,
+        val headers: Headers,
+        val body: ByteArray
+    )
+
+    fun find(request: Request): Recording? = find(keyOf(request))
+
+    fun find(key: String): Recording? {
+        val name = fileNameOf(key)
+        val head = File(dir, "$name$HEAD").takeIf { it.exists() } ?: return null
+        val body = File(dir, "$name$BODY").takeIf { it.exists() } ?: return null
+        val lines = head.readLines()
+        if (lines.size < 3 || lines[0] != key) {
+            return null
+        }
+        val headers = Headers.Builder().apply {
+            lines.drop(3).forEach { addUnsafeNonAscii(it.substringBefore(": "), it.substringAfter(": ")) }
+        }.build()
+        return Recording(key, lines[1].toInt(), lines[2], headers, body.readBytes())
+    }
+
+    fun save(request: Request, code: Int, message: String, headers: Headers, body: ByteArray) {
+        val key = keyOf(request)
+        val name = fileNameOf(key)
+        dir.mkdirs()
+        File(dir, "$name$BODY").writeBytes(body)
+        // head last, a recording without head is never found
+        File(dir, "$name$HEAD").writeText(
+            buildString {
+                append(key).append('\n')
+                append(code).append('\n')
+                append(message).append('\n')
+                headers
+                    .filter { (name, _) -> KEPT_HEADERS.any { it.equals(name, true) } }
+                    .forEach { (name, value) -> append(name).append(": ").append(value).append('\n') }
+            }
+        )
+    }
+
+    companion object {
+        private const val HEAD = ".head"
+        private const val BODY = ".body"
+
+        // enough to replay a page, cookies and the like are dropped
+        private val KEPT_HEADERS = listOf(
+            "Content-Type",
+            "Location",
+            "Cache-Control",
+            "Expires",
+            "Last-Modified"
+        )
+
+        fun keyOf(request: Request): String {
+            val body = request.body?.let { Buffer().also { buffer -> it.writeTo(buffer) } }
+            return keyOf(request.method, targetOf(request.url), body?.readByteArray())
+        }
+
+        /**
+         * @param target path and query of the request, as sent on the wire
+         */
+        fun keyOf(method: String, target: String, body: ByteArray?): String {
+            if (body == null) {
+                return "$method $target"
+            }
+            return "$method $target ${body.toByteString().sha1().hex()}"
+        }
+
+        private fun targetOf(url: HttpUrl): String {
+            return url.encodedQuery?.let { "${url.encodedPath}?$it" } ?: url.encodedPath
+        }
+
+        private fun fileNameOf(key: String): String = key.encodeUtf8().sha1().hex()
+    }
+}
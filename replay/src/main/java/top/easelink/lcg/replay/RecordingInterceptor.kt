@@ -0,0 +1,27 @@
+package top.easelink.lcg.replay
+
+import okhttp3.Interceptor
+import okhttp3.Response
+
+/**
+ * Saves every response which passes through to [corpus], the response itself is untouched.
+ * Responses are buffered in memory to be saved, it's meant for debug builds and capture runs only.
+ */
+class RecordingInterceptor(private val corpus: Corpus) : Interceptor {
+
+    override fun intercept(chain: Interceptor.Chain): Response {
+        val request = chain.request()
+        val response = chain.proceed(request)
+        // answers from the cache were recorded when they came from the network
+        if (response.networkResponse != null || response.cacheResponse == null) {
+            corpus.save(
+                request,
+                response.code,
+                response.message,
+                response.headers,
+                response.peekBody(Long.MAX_VALUE).bytes()
+            )
+        }
+        return response
+    }
+}
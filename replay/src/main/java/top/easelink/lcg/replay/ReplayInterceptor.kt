@@ -0,0 +1,60 @@
+package top.easelink.lcg.replay
+
+import okhttp3.Interceptor
+import okhttp3.MediaType.Companion.toMediaTypeOrNull
+import okhttp3.Protocol
+import okhttp3.Request
+import okhttp3.Response
+import okhttp3.ResponseBody.Companion.asResponseBody
+import okhttp3.ResponseBody.Companion.toResponseBody
+import okio.buffer
+
+/**
+ * Answers requests from [corpus] without touching the network, shaped by [shaping].
+ * Requests not in the corpus get a 404, so a replay never falls back to the live site.
+ *
+ * Requests which may only be answered by the http cache are passed on to it.
+ */
+class ReplayInterceptor(
+    private val corpus: Corpus,
+    private val shaping: Shaping = Shaping.NONE
+) : Interceptor {
+
+    override fun intercept(chain: Interceptor.Chain): Response {
+        val request = chain.request()
+        if (request.cacheControl.onlyIfCached) {
+            return chain.proceed(request)
+        }
+        val sentAt = System.currentTimeMillis()
+        val recording = corpus.find(request) ?: return notRecorded(request, sentAt)
+        shaping.awaitFirstByte()
+        val contentType = recording.headers["Content-Type"]?.toMediaTypeOrNull()
+        return Response.Builder()
+            .request(request)
+            .protocol(Protocol.HTTP_1_1)
+            .code(recording.code)
+            .message(recording.message)
+            .headers(recording.headers)
+            .body(
+                shaping
+                    .source(recording.body)
+                    .buffer()
+                    .asResponseBody(contentType, recording.body.size.toLong())
+            )
+            .sentRequestAtMillis(sentAt)
+            .receivedResponseAtMillis(System.currentTimeMillis())
+            .build()
+    }
+
+    private fun notRecorded(request: Request, sentAt: Long): Response {
+        return Response.Builder()
+            .request(request)
+            .protocol(Protocol.HTTP_1_1)
+            .code(404)
+            .message("Not Recorded")
+            .body("".toResponseBody())
+            .sentRequestAtMillis(sentAt)
+            .receivedResponseAtMillis(System.currentTimeMillis())
+            .build()
+    }
+}
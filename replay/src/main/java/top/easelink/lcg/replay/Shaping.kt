@@ -0,0 +1,42 @@
+package top.easelink.lcg.replay
+
+import okio.Buffer
+import okio.Source
+import okio.Throttler
+
+/**
+ * Network conditions applied to replayed responses
+ *
+ * @param latencyMillis wait before the first byte of a response
+ * @param bytesPerSecond body bandwidth, 0 -> unlimited
+ */
+class Shaping(
+    val latencyMillis: Long = 0,
+    val bytesPerSecond: Long = 0
+) {
+
+    fun awaitFirstByte() {
+        if (latencyMillis > 0) {
+            Thread.sleep(latencyMillis)
+        }
+    }
+
+    fun source(body: ByteArray): Source {
+        val source = Buffer().write(body)
+        if (bytesPerSecond <= 0) {
+            return source
+        }
+        // each response gets its own throttler, like a connection of its own
+        return Throttler()
+            .apply { bytesPerSecond(bytesPerSecond, CHUNK_SIZE, CHUNK_SIZE) }
+            .source(source)
+    }
+
+    override fun toString(): String = "latency=${latencyMillis}ms, bandwidth=${bytesPerSecond}B/s"
+
+    companion object {
+        private const val CHUNK_SIZE = 8192L
+
+        val NONE = Shaping()
+    }
+}